@@ -1,4 +1,11 @@
+import java.util.List;
+
+import maths.MathUtils;
 import neurons.NeuralNetwork;
+import sweep.SearchSpace;
+import sweep.SweepResult;
+import sweep.SweepRunner;
+import training.SampleSources;
 
 /**
  * This is the test class indicating how to
@@ -15,6 +22,7 @@ public class Main {
 		Main main = new Main();
 		main.testForXOR();
 		main.testForMyNetwork();
+		main.sweepForXOR();
 	}
 	
 	/**
@@ -124,4 +132,41 @@ public class Main {
 				outputFile, iterations, 
 				inputVectors, desiredOutputVectors);
 	}
+	
+	/**
+	 * This method is used to demonstrate how several settings
+	 * of the XOR network can be tried at once, instead of
+	 * fixing a single learning rate, threshold and layout.
+	 */
+	public void sweepForXOR() throws Exception {
+		
+		float[][] inputVectors = MathUtils.booleanArrayToFloatArray(new boolean[][] {
+				{false, false},
+				{false, true},
+				{true, false},
+				{true, true}
+		});
+		float[][] desiredOutputVectors = MathUtils.booleanArrayToFloatArray(new boolean[][] {
+				{false},
+				{true},
+				{true},
+				{false}
+		});
+		
+		// every combination of these values is trained, using all
+		// the processors of this machine, and the results are
+		// printed from the lowest loss onwards
+		SearchSpace space = new SearchSpace()
+				.learningRates(0.1f, 0.5f, 1.0f, 2.0f)
+				.thresholds(0.5f)
+				.hiddenLayerLayouts(new int[] {2}, new int[] {4}, new int[] {8}, new int[] {8, 8})
+				.iterations(500, 2000);
+		
+		SweepRunner runner = new SweepRunner(2, 1, SampleSources.of(inputVectors, desiredOutputVectors));
+		runner.setBatchSize(4);
+		List<SweepResult> results = runner.run(space.grid());
+		runner.shutdown();
+		
+		SweepRunner.writeTable(results, System.out);
+	}
 }
@@ -0,0 +1,158 @@
+package data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class reads batches of training records on a
+ * background thread while the previous batches are being
+ * used for training.
+ *
+ * A fixed set of batch buffers is passed between the reading
+ * thread and the training thread, so no memory is allocated
+ * per batch. With two buffers the next batch is decoded while
+ * the current one is trained (double buffering).
+ *
+ * Each call to start() reads the records once from the first
+ * record. Every batch taken with next() must be given back
+ * with release() once it is no longer used.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class BatchPrefetcher implements Closeable {
+
+	/**
+	 * Marks the end of a pass over the records
+	 */
+	private static final TrainingBatch END_OF_PASS = new TrainingBatch(0, 0, 0);
+
+	private final RecordReader reader;
+	private final BlockingQueue<TrainingBatch> freeBatches;
+	private final BlockingQueue<TrainingBatch> filledBatches;
+
+	private Thread thread;
+	private volatile IOException failure;
+	private boolean passFinished = true;
+
+	/**
+	 * @param reader
+	 * @param batchSize maximum number of records in a batch
+	 * @param bufferCount number of batch buffers, at least 2
+	 */
+	public BatchPrefetcher(RecordReader reader, int batchSize, int bufferCount) {
+
+		if(batchSize <= 0 || bufferCount < 2)
+			throw new RuntimeException("Invalid batch size " + batchSize + " or buffer count " + bufferCount);
+
+		this.reader = reader;
+		this.freeBatches = new ArrayBlockingQueue<TrainingBatch>(bufferCount);
+		this.filledBatches = new ArrayBlockingQueue<TrainingBatch>(bufferCount + 1);
+		for(int i = 0; i < bufferCount; i++) {
+			freeBatches.add(new TrainingBatch(batchSize, reader.getInputSize(), reader.getOutputSize()));
+		}
+	}
+
+	/**
+	 * Start reading the records from the first record
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+
+		if(!passFinished)
+			throw new RuntimeException("The previous pass has not been read to the end");
+
+		reader.reset();
+		this.failure = null;
+		this.passFinished = false;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				fillBatches();
+			}
+		}, "batch-prefetcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void fillBatches() {
+		try {
+			while(true) {
+				TrainingBatch batch = freeBatches.take();
+				int count;
+				try {
+					count = batch.fill(reader);
+				}
+				catch(IOException e) {
+					failure = e;
+					count = 0;
+				}
+				if(count == 0) {
+					freeBatches.put(batch);
+					filledBatches.put(END_OF_PASS);
+					return;
+				}
+				filledBatches.put(batch);
+			}
+		}
+		catch(InterruptedException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Take the next batch, waiting for it to be read if needed
+	 * @return the next batch, or null at the end of the pass
+	 * @throws IOException if reading the records failed
+	 */
+	public TrainingBatch next() throws IOException {
+
+		if(passFinished)
+			return null;
+
+		TrainingBatch batch;
+		try {
+			batch = filledBatches.take();
+			if(batch == END_OF_PASS) {
+				thread.join();
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a batch");
+		}
+
+		if(batch == END_OF_PASS) {
+			passFinished = true;
+			if(failure != null)
+				throw failure;
+			return null;
+		}
+		return batch;
+	}
+
+	/**
+	 * Give a batch back so that it can be filled again
+	 * @param batch
+	 */
+	public void release(TrainingBatch batch) {
+		if(!freeBatches.offer(batch))
+			throw new RuntimeException("Batch released more than once");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		reader.close();
+	}
+}
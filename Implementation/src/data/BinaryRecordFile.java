@@ -0,0 +1,245 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads and writes the binary training record format.
+ *
+ * All values are little-endian;
+ * <pre>
+ * int     magic number ("ANND")
+ * int     format version
+ * int     input size
+ * int     desired output size
+ * long    record count
+ * float[] inputs and then desired outputs of each record
+ * </pre>
+ * Files are read through a window which is memory-mapped a
+ * few megabytes at a time, so files much larger than the heap
+ * (and larger than 2 GB) can be streamed.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class BinaryRecordFile {
+
+	public static final int MAGIC = 0x444E4E41; // "ANND" in little-endian
+	public static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 6 * 4;
+
+	/**
+	 * Approximate number of bytes mapped at a time
+	 */
+	private static final int WINDOW_SIZE = 1 << 26;
+
+	/**
+	 * Size of the buffer used when writing records
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+	public static Reader open(Path file) throws IOException {
+		return new Reader(file);
+	}
+
+	public static Writer create(Path file, int inputSize, int outputSize) throws IOException {
+		return new Writer(file, inputSize, outputSize);
+	}
+
+	/**
+	 * Streams the records of a binary record file
+	 */
+	public static class Reader implements RecordReader {
+
+		private final FileChannel channel;
+		private final int inputSize;
+		private final int outputSize;
+		private final long recordCount;
+		private final int windowRecords;
+
+		private long windowStart;
+		private FloatBuffer window;
+		private long nextRecord;
+
+		private Reader(Path file) throws IOException {
+
+			this.channel = FileChannel.open(file, StandardOpenOption.READ);
+			try {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				while(header.hasRemaining()) {
+					if(channel.read(header, header.position()) < 0)
+						throw new IOException(file + " is not a record file");
+				}
+				header.flip();
+				if(header.getInt() != MAGIC)
+					throw new IOException(file + " is not a record file");
+				int version = header.getInt();
+				if(version != VERSION)
+					throw new IOException("Unsupported record file version " + version + " in " + file);
+				this.inputSize = header.getInt();
+				this.outputSize = header.getInt();
+				this.recordCount = header.getLong();
+
+				if(inputSize <= 0 || outputSize <= 0 || recordCount < 0)
+					throw new IOException("Invalid header in " + file);
+				if(HEADER_SIZE + recordCount * recordBytes() > channel.size())
+					throw new IOException(file + " is truncated");
+			}
+			catch(IOException e) {
+				channel.close();
+				throw e;
+			}
+
+			this.windowRecords = Math.max(1, WINDOW_SIZE / recordBytes());
+		}
+
+		private int recordBytes() {
+			return 4 * (inputSize + outputSize);
+		}
+
+		@Override
+		public int getInputSize() {
+			return this.inputSize;
+		}
+
+		@Override
+		public int getOutputSize() {
+			return this.outputSize;
+		}
+
+		public long getRecordCount() {
+			return this.recordCount;
+		}
+
+		@Override
+		public int read(float[] inputs, float[] desiredOutputs, int maxRecords) throws IOException {
+
+			int count = 0;
+			while(count < maxRecords && nextRecord < recordCount) {
+				if(window == null || nextRecord >= windowStart + windowRecords) {
+					mapWindow(nextRecord);
+				}
+				int available = (int) Math.min(maxRecords - count, windowStart + windowRecords - nextRecord);
+				available = (int) Math.min(available, recordCount - nextRecord);
+				for(int r = 0; r < available; r++, count++) {
+					window.get(inputs, count * inputSize, inputSize);
+					window.get(desiredOutputs, count * outputSize, outputSize);
+				}
+				nextRecord += available;
+			}
+			return count;
+		}
+
+		private void mapWindow(long firstRecord) throws IOException {
+
+			long records = Math.min(windowRecords, recordCount - firstRecord);
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+					HEADER_SIZE + firstRecord * recordBytes(), records * recordBytes());
+			this.window = mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+			this.windowStart = firstRecord;
+		}
+
+		@Override
+		public void reset() {
+			this.nextRecord = 0;
+			if(window != null) {
+				if(windowStart == 0) {
+					window.rewind();
+				}
+				else {
+					window = null;
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.window = null;
+			channel.close();
+		}
+	}
+
+	/**
+	 * Appends records to a new binary record file. The record
+	 * count in the header is written when the writer is closed.
+	 */
+	public static class Writer implements java.io.Closeable {
+
+		private final FileChannel channel;
+		private final int inputSize;
+		private final int outputSize;
+		private final ByteBuffer buffer;
+		private final FloatBuffer floats;
+		private long recordCount;
+
+		private Writer(Path file, int inputSize, int outputSize) throws IOException {
+
+			if(inputSize <= 0 || outputSize <= 0)
+				throw new RuntimeException("Invalid record sizes : " + inputSize + ", " + outputSize);
+
+			this.inputSize = inputSize;
+			this.outputSize = outputSize;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			this.buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_SIZE, 4 * (inputSize + outputSize)))
+				.order(ByteOrder.LITTLE_ENDIAN);
+			this.floats = buffer.asFloatBuffer();
+			channel.position(HEADER_SIZE);
+		}
+
+		/**
+		 * Append a record to the file
+		 * @param inputs
+		 * @param desiredOutputs
+		 * @throws IOException
+		 */
+		public void write(float[] inputs, float[] desiredOutputs) throws IOException {
+
+			if(inputs.length != inputSize || desiredOutputs.length != outputSize)
+				throw new RuntimeException("Record does not match the sizes of the file");
+
+			if(floats.remaining() < inputSize + outputSize) {
+				flush();
+			}
+			floats.put(inputs);
+			floats.put(desiredOutputs);
+			recordCount++;
+		}
+
+		private void flush() throws IOException {
+			buffer.clear();
+			buffer.limit(4 * floats.position());
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			floats.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(inputSize);
+				header.putInt(outputSize);
+				header.putLong(recordCount);
+				header.flip();
+				while(header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(false);
+			}
+			finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This reads training records from a comma separated text
+ * file, one record per line with the inputs followed by the
+ * desired outputs. Empty lines and lines starting with '#'
+ * are skipped.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class CsvRecordReader implements RecordReader {
+
+	private final Path file;
+	private final int inputSize;
+	private final int outputSize;
+
+	private BufferedReader reader;
+	private long lineNumber;
+
+	public CsvRecordReader(Path file, int inputSize, int outputSize) throws IOException {
+		this.file = file;
+		this.inputSize = inputSize;
+		this.outputSize = outputSize;
+		this.reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.inputSize;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.outputSize;
+	}
+
+	@Override
+	public int read(float[] inputs, float[] desiredOutputs, int maxRecords) throws IOException {
+
+		int count = 0;
+		String line;
+		while(count < maxRecords && (line = reader.readLine()) != null) {
+			lineNumber++;
+			if(line.isEmpty() || line.charAt(0) == '#')
+				continue;
+
+			int position = 0;
+			for(int i = 0; i < inputSize; i++) {
+				position = parseValue(line, position, inputs, count * inputSize + i);
+			}
+			for(int i = 0; i < outputSize; i++) {
+				position = parseValue(line, position, desiredOutputs, count * outputSize + i);
+			}
+			if(position <= line.length())
+				throw new IOException("Too many values on line " + lineNumber + " of " + file);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Parse the value starting at the given position of the line
+	 * into values[index]
+	 * @return the position after the separator following the value
+	 */
+	private int parseValue(String line, int position, float[] values, int index) throws IOException {
+
+		if(position > line.length())
+			throw new IOException("Too few values on line " + lineNumber + " of " + file);
+
+		int end = line.indexOf(',', position);
+		if(end < 0)
+			end = line.length();
+		try {
+			values[index] = Float.parseFloat(line.substring(position, end).trim());
+		}
+		catch(NumberFormatException e) {
+			throw new IOException("Invalid value on line " + lineNumber + " of " + file, e);
+		}
+		return end + 1;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		reader.close();
+		this.reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII);
+		this.lineNumber = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
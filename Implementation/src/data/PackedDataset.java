@@ -0,0 +1,122 @@
+package data;
+
+import java.util.Arrays;
+
+import maths.MathUtils;
+
+/**
+ * This class holds a data set of binary samples with each
+ * input and desired output packed into a single bit, which is
+ * 32 times smaller than keeping them as floats.
+ *
+ * The bits of sample s start at word (s * getInputWords())
+ * of the input bits and at word (s * getOutputWords()) of the
+ * output bits (see MathUtils.packBits).
+ * @author wimal perera (09/10008)
+ *
+ */
+public class PackedDataset {
+
+	private final int inputSize;
+	private final int outputSize;
+	private final int inputWords;
+	private final int outputWords;
+
+	private long[] inputBits;
+	private long[] outputBits;
+	private int sampleCount;
+
+	/**
+	 * Creates an empty data set
+	 * @param inputSize
+	 * @param outputSize
+	 * @param capacity number of samples to make room for
+	 */
+	public PackedDataset(int inputSize, int outputSize, int capacity) {
+		this.inputSize = inputSize;
+		this.outputSize = outputSize;
+		this.inputWords = MathUtils.wordCount(inputSize);
+		this.outputWords = MathUtils.wordCount(outputSize);
+		this.inputBits = new long[Math.max(1, capacity) * inputWords];
+		this.outputBits = new long[Math.max(1, capacity) * outputWords];
+	}
+
+	/**
+	 * Pack the given boolean samples
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @return
+	 */
+	public static PackedDataset pack(boolean[][] inputVectors, boolean[][] desiredOutputVectors) {
+
+		if(inputVectors.length != desiredOutputVectors.length || inputVectors.length == 0)
+			throw new RuntimeException("There should be one desired output for each input");
+
+		PackedDataset dataset = new PackedDataset(inputVectors[0].length,
+				desiredOutputVectors[0].length, inputVectors.length);
+		for(int i = 0; i < inputVectors.length; i++) {
+			dataset.add(inputVectors[i], desiredOutputVectors[i]);
+		}
+		return dataset;
+	}
+
+	/**
+	 * Add a sample to the data set
+	 * @param inputs
+	 * @param desiredOutputs
+	 */
+	public void add(boolean[] inputs, boolean[] desiredOutputs) {
+
+		if(inputs.length != inputSize || desiredOutputs.length != outputSize)
+			throw new RuntimeException("The sample does not match the sizes of the data set");
+
+		ensureCapacity(sampleCount + 1);
+		MathUtils.packBits(inputs, inputBits, sampleCount * inputWords);
+		MathUtils.packBits(desiredOutputs, outputBits, sampleCount * outputWords);
+		sampleCount++;
+	}
+
+	private void ensureCapacity(int samples) {
+		if(samples * inputWords > inputBits.length) {
+			int capacity = Math.max(samples, 2 * (inputBits.length / inputWords));
+			inputBits = Arrays.copyOf(inputBits, capacity * inputWords);
+			outputBits = Arrays.copyOf(outputBits, capacity * outputWords);
+		}
+	}
+
+	public long[] getInputBits() {
+		return this.inputBits;
+	}
+
+	public long[] getOutputBits() {
+		return this.outputBits;
+	}
+
+	/**
+	 * Number of words holding the inputs of each sample
+	 * @return
+	 */
+	public int getInputWords() {
+		return this.inputWords;
+	}
+
+	/**
+	 * Number of words holding the desired outputs of each sample
+	 * @return
+	 */
+	public int getOutputWords() {
+		return this.outputWords;
+	}
+
+	public int getInputSize() {
+		return this.inputSize;
+	}
+
+	public int getOutputSize() {
+		return this.outputSize;
+	}
+
+	public int getSampleCount() {
+		return this.sampleCount;
+	}
+}
@@ -0,0 +1,36 @@
+package data;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A record reader streams training records (inputs and
+ * their desired outputs) from a data source which does
+ * not need to fit in memory.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface RecordReader extends Closeable {
+
+	int getInputSize();
+
+	int getOutputSize();
+
+	/**
+	 * Read the next records into the given arrays, which hold
+	 * the values record after record starting from the first
+	 * position.
+	 * @param inputs
+	 * @param desiredOutputs
+	 * @param maxRecords maximum number of records to read
+	 * @return the number of records read, 0 at the end of the data
+	 * @throws IOException
+	 */
+	int read(float[] inputs, float[] desiredOutputs, int maxRecords) throws IOException;
+
+	/**
+	 * Start reading again from the first record
+	 * @throws IOException
+	 */
+	void reset() throws IOException;
+}
@@ -0,0 +1,102 @@
+package data;
+
+import java.util.Arrays;
+
+import maths.SparseVector;
+
+/**
+ * This class holds a data set whose inputs are kept in
+ * compressed sparse row (CSR) form; the positions and the
+ * values of the non-zero inputs of sample s are found at
+ * [getRowStart(s), getRowStart(s + 1)) of the index and value
+ * arrays. Desired outputs are kept dense, sample after sample.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SparseDataset {
+
+	private final int inputSize;
+	private final int outputSize;
+
+	private int[] rowStarts;
+	private int[] indices;
+	private float[] values;
+	private float[] desiredOutputs;
+	private int sampleCount;
+
+	/**
+	 * Creates an empty data set
+	 * @param inputSize
+	 * @param outputSize
+	 * @param capacity number of samples to make room for
+	 */
+	public SparseDataset(int inputSize, int outputSize, int capacity) {
+		this.inputSize = inputSize;
+		this.outputSize = outputSize;
+		capacity = Math.max(1, capacity);
+		this.rowStarts = new int[capacity + 1];
+		this.indices = new int[capacity * 8];
+		this.values = new float[capacity * 8];
+		this.desiredOutputs = new float[capacity * outputSize];
+	}
+
+	/**
+	 * Add a sample to the data set
+	 * @param inputs
+	 * @param desired
+	 */
+	public void add(SparseVector inputs, float[] desired) {
+
+		if(inputs.getSize() != inputSize || desired.length != outputSize)
+			throw new RuntimeException("The sample does not match the sizes of the data set");
+
+		int start = rowStarts[sampleCount];
+		int count = inputs.getNonZeroCount();
+		ensureCapacity(sampleCount + 1, start + count);
+		System.arraycopy(inputs.getIndices(), 0, indices, start, count);
+		System.arraycopy(inputs.getValues(), 0, values, start, count);
+		System.arraycopy(desired, 0, desiredOutputs, sampleCount * outputSize, outputSize);
+		rowStarts[++sampleCount] = start + count;
+	}
+
+	private void ensureCapacity(int samples, int nonZeros) {
+		if(samples + 1 > rowStarts.length) {
+			int capacity = Math.max(samples, 2 * (rowStarts.length - 1));
+			rowStarts = Arrays.copyOf(rowStarts, capacity + 1);
+			desiredOutputs = Arrays.copyOf(desiredOutputs, capacity * outputSize);
+		}
+		if(nonZeros > indices.length) {
+			int capacity = Math.max(nonZeros, 2 * indices.length);
+			indices = Arrays.copyOf(indices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	public int getRowStart(int sample) {
+		return this.rowStarts[sample];
+	}
+
+	public int[] getIndices() {
+		return this.indices;
+	}
+
+	public float[] getValues() {
+		return this.values;
+	}
+
+	public float[] getDesiredOutputs() {
+		return this.desiredOutputs;
+	}
+
+	public int getInputSize() {
+		return this.inputSize;
+	}
+
+	public int getOutputSize() {
+		return this.outputSize;
+	}
+
+	public int getSampleCount() {
+		return this.sampleCount;
+	}
+}
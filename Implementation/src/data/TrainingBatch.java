@@ -0,0 +1,50 @@
+package data;
+
+import java.io.IOException;
+
+/**
+ * This is a reusable buffer holding a batch of training
+ * records, record after record, in flat arrays.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class TrainingBatch {
+
+	private final int capacity;
+	private final float[] inputs;
+	private final float[] desiredOutputs;
+	private int count;
+
+	public TrainingBatch(int capacity, int inputSize, int outputSize) {
+		this.capacity = capacity;
+		this.inputs = new float[capacity * inputSize];
+		this.desiredOutputs = new float[capacity * outputSize];
+	}
+
+	/**
+	 * Fill this batch with the next records of the reader
+	 * @param reader
+	 * @return the number of records in the batch, 0 at the end of the data
+	 * @throws IOException
+	 */
+	public int fill(RecordReader reader) throws IOException {
+		this.count = reader.read(inputs, desiredOutputs, capacity);
+		return this.count;
+	}
+
+	public float[] getInputs() {
+		return this.inputs;
+	}
+
+	public float[] getDesiredOutputs() {
+		return this.desiredOutputs;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+}
@@ -0,0 +1,363 @@
+package distributed;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import data.CsvRecordReader;
+import inference.ModelFile;
+import neurons.BatchWorkspace;
+import neurons.DenseNetwork;
+import neurons.Gradients;
+import training.SampleSource;
+import training.SampleSources;
+
+/**
+ * This class trains one replica of a dense network as one
+ * of several workers, each of which can run in its own process
+ * or on its own machine. Each worker trains with its own
+ * shard of the samples (see SampleSources.shard) and the
+ * workers keep their replicas together through a Transport.
+ *
+ * Before training the weights of worker 0 are sent to all
+ * other workers. Every worker then takes the same number of
+ * batches in each epoch, enough for the largest shard; a worker
+ * with a smaller shard starts over at the beginning of its own
+ * shuffled shard. The replicas are kept together either by
+ * adding up the gradients of every batch, or by averaging the
+ * weights every few batches and at the end of every epoch (see
+ * SyncMode). Either way all replicas hold exactly the same
+ * weights at the end of each epoch.
+ *
+ * The optimizer of each replica keeps its own state; with
+ * gradient all-reduce the states stay the same since every
+ * replica sees the same gradients.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class DistributedTrainer {
+
+	private final DenseNetwork network;
+	private final Transport transport;
+	private final int batchSize;
+	private final SyncMode syncMode;
+	private final int syncInterval;
+	private final Random random;
+
+	private final BatchWorkspace workspace;
+	private final Gradients gradients;
+
+	/**
+	 * Weights and biases of all layers, or their gradients,
+	 * followed by the loss, error count and sample count
+	 */
+	private final float[] buffer;
+	private final int parameterCount;
+
+	/**
+	 * Loss, error count and sample count of an epoch
+	 */
+	private final float[] totals = new float[3];
+
+	/**
+	 * @param network replica trained by this worker
+	 * @param transport
+	 * @param batchSize number of samples of each worker in a batch
+	 * @param syncMode
+	 * @param syncInterval number of batches between two averages
+	 * of the weights, only used for parameter averaging
+	 */
+	public DistributedTrainer(DenseNetwork network, Transport transport, int batchSize, 
+			SyncMode syncMode, int syncInterval) {
+		this(network, transport, batchSize, syncMode, syncInterval, new Random());
+	}
+
+	public DistributedTrainer(DenseNetwork network, Transport transport, int batchSize, 
+			SyncMode syncMode, int syncInterval, Random random) {
+
+		if(batchSize < 1)
+			throw new RuntimeException("Batch size should be positive");
+		if(syncInterval < 1)
+			throw new RuntimeException("Sync interval should be positive");
+
+		this.network = network;
+		this.transport = transport;
+		this.batchSize = batchSize;
+		this.syncMode = syncMode;
+		this.syncInterval = syncInterval;
+		this.random = random;
+
+		this.workspace = network.createWorkspace(batchSize);
+		this.gradients = network.createGradients();
+
+		int count = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			count += network.getLayerSize(k) * (network.getLayerSize(k-1) + 1);
+		}
+		this.parameterCount = count;
+		this.buffer = new float[count + 3];
+	}
+
+	/**
+	 * Train the replica with the shard of this worker for the
+	 * given number of epochs. All workers have to call this
+	 * with the same number of epochs.
+	 * @param shard
+	 * @param epochs
+	 * @return the mean loss of the last epoch over all workers
+	 * @throws IOException
+	 */
+	public double train(SampleSource shard, int epochs) throws IOException {
+
+		synchronizeWeights();
+
+		int[] order = new int[shard.getSampleCount()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		// all workers take enough batches for the largest shard
+		totals[0] = order.length;
+		transport.allReduceSum(totals);
+		int workerCount = transport.getWorkerCount();
+		int samplesPerWorker = ((int) totals[0] + workerCount - 1) / workerCount;
+		int batchCount = (samplesPerWorker + batchSize - 1) / batchSize;
+
+		double loss = Double.NaN;
+		for(int epoch = 0; epoch < epochs; epoch++) {
+			shuffle(order);
+			loss = trainEpoch(shard, order, batchCount);
+		}
+		return loss;
+	}
+
+	/**
+	 * Train one epoch
+	 * @return the mean loss of the epoch over all workers
+	 */
+	private double trainEpoch(SampleSource shard, int[] order, int batchCount) throws IOException {
+
+		double loss = 0.0;
+		int errorCount = 0;
+		int sampleCount = 0;
+		int position = 0;
+		for(int batch = 0; batch < batchCount; batch++) {
+			int count = order.length == 0 ? 0 : batchSize;
+			for(int b = 0; b < count; b++) {
+				shard.load(order[position], workspace, b);
+				position = (position + 1) % order.length;
+			}
+
+			gradients.clear();
+			if(count > 0) {
+				network.forwardPass(workspace, count);
+				network.backwardPass(workspace, count, gradients);
+			}
+
+			if(syncMode == SyncMode.GRADIENT_ALL_REDUCE) {
+				int total = allReduceGradients();
+				if(total > 0)
+					network.applyGradients(gradients, total);
+			}
+			else {
+				if(count > 0)
+					network.applyGradients(gradients, count);
+				if((batch + 1) % syncInterval == 0 || batch + 1 == batchCount)
+					averageWeights();
+			}
+			loss += gradients.getLoss();
+			errorCount += gradients.getErrorCount();
+			sampleCount += gradients.getSampleCount();
+		}
+
+		// with gradient all-reduce the totals are already global
+		if(syncMode != SyncMode.GRADIENT_ALL_REDUCE) {
+			totals[0] = (float) loss;
+			totals[1] = errorCount;
+			totals[2] = sampleCount;
+			transport.allReduceSum(totals);
+			loss = totals[0];
+			sampleCount = (int) totals[2];
+		}
+		return sampleCount == 0 ? 0.0 : loss / sampleCount;
+	}
+
+	/**
+	 * Add up the gradients, loss, error count and sample count
+	 * of the current batch over all workers
+	 * @return number of samples of the batch over all workers
+	 */
+	private int allReduceGradients() throws IOException {
+
+		int offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = pack(gradients.getWeightGradients(k), offset);
+			offset = pack(gradients.getBiasGradients(k), offset);
+		}
+		buffer[offset] = (float) gradients.getLoss();
+		buffer[offset + 1] = gradients.getErrorCount();
+		buffer[offset + 2] = gradients.getSampleCount();
+
+		transport.allReduceSum(buffer);
+
+		offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = unpack(gradients.getWeightGradients(k), offset, 1.0f);
+			offset = unpack(gradients.getBiasGradients(k), offset, 1.0f);
+		}
+		gradients.clearLoss();
+		gradients.addLoss(buffer[offset], (int) buffer[offset + 1], (int) buffer[offset + 2]);
+		return (int) buffer[offset + 2];
+	}
+
+	/**
+	 * Replace the weights of every replica by
+	 * their average over all workers
+	 */
+	private void averageWeights() throws IOException {
+
+		int offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = pack(network.getWeights(k), offset);
+			offset = pack(network.getBiases(k), offset);
+		}
+		transport.allReduceSum(buffer);
+
+		float scale = 1.0f / transport.getWorkerCount();
+		offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = unpack(network.getWeights(k), offset, scale);
+			offset = unpack(network.getBiases(k), offset, scale);
+		}
+	}
+
+	/**
+	 * Replace the weights of every replica by those of worker 0
+	 */
+	private void synchronizeWeights() throws IOException {
+
+		int offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = pack(network.getWeights(k), offset);
+			offset = pack(network.getBiases(k), offset);
+		}
+		transport.broadcast(buffer, 0);
+
+		offset = 0;
+		for(int k = 1; k < network.getLayerCount(); k++) {
+			offset = unpack(network.getWeights(k), offset, 1.0f);
+			offset = unpack(network.getBiases(k), offset, 1.0f);
+		}
+	}
+
+	private int pack(float[] values, int offset) {
+		System.arraycopy(values, 0, buffer, offset, values.length);
+		return offset + values.length;
+	}
+
+	private int unpack(float[] values, int offset, float scale) {
+		if(scale == 1.0f) {
+			System.arraycopy(buffer, offset, values, 0, values.length);
+		}
+		else {
+			for(int i = 0; i < values.length; i++) {
+				values[i] = buffer[offset + i] * scale;
+			}
+		}
+		return offset + values.length;
+	}
+
+	private void shuffle(int[] order) {
+		for(int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int temp = order[i];
+			order[i] = order[j];
+			order[j] = temp;
+		}
+	}
+
+	public int getParameterCount() {
+		return this.parameterCount;
+	}
+
+	public SyncMode getSyncMode() {
+		return this.syncMode;
+	}
+
+	/**
+	 * Train a network over several processes; each process
+	 * runs one worker with the same arguments except its rank,
+	 * reads the same CSV file (inputs followed by desired outputs
+	 * on each line) and trains with its own shard of it.
+	 * Worker 0 listens on the given port and writes the
+	 * trained model when a model file is given;
+	 * <pre>
+	 * DistributedTrainer rank workers host:port csv layers epochs [model-file]
+	 * </pre>
+	 * where layers lists the layer sizes, e.g. 2,8,1
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 6) {
+			System.err.println("Usage: DistributedTrainer rank workers host:port csv layers epochs [model-file]");
+			System.exit(1);
+		}
+
+		int rank = Integer.parseInt(args[0]);
+		int workerCount = Integer.parseInt(args[1]);
+		String host = args[2].substring(0, args[2].lastIndexOf(':'));
+		int port = Integer.parseInt(args[2].substring(args[2].lastIndexOf(':') + 1));
+		String[] sizes = args[4].split(",");
+		int[] layerSizes = new int[sizes.length];
+		for(int k = 0; k < sizes.length; k++) {
+			layerSizes[k] = Integer.parseInt(sizes[k].trim());
+		}
+		int epochs = Integer.parseInt(args[5]);
+
+		int inputSize = layerSizes[0];
+		int outputSize = layerSizes[layerSizes.length - 1];
+		SampleSource samples = readCsv(args[3], inputSize, outputSize);
+
+		int timeoutMillis = 60000;
+		Transport transport = rank == 0
+				? SocketTransport.coordinator(port, workerCount, timeoutMillis)
+				: SocketTransport.worker(host, port, rank, workerCount, timeoutMillis);
+		try {
+			DenseNetwork network = new DenseNetwork(layerSizes, 0.1f, 0.5f);
+			DistributedTrainer trainer = new DistributedTrainer(network, transport, 32, 
+					SyncMode.GRADIENT_ALL_REDUCE, 1);
+			double loss = trainer.train(SampleSources.shard(samples, rank, workerCount), epochs);
+			System.out.println("worker " + rank + " of " + workerCount + " : loss " + loss);
+			if(rank == 0 && args.length > 6)
+				ModelFile.write(network, Paths.get(args[6]));
+		}
+		finally {
+			transport.close();
+		}
+	}
+
+	private static SampleSource readCsv(String file, int inputSize, int outputSize) throws IOException {
+
+		List<float[]> inputs = new ArrayList<float[]>();
+		List<float[]> desiredOutputs = new ArrayList<float[]>();
+		CsvRecordReader reader = new CsvRecordReader(Paths.get(file), inputSize, outputSize);
+		try {
+			while(true) {
+				float[] input = new float[inputSize];
+				float[] desired = new float[outputSize];
+				if(reader.read(input, desired, 1) == 0)
+					break;
+				inputs.add(input);
+				desiredOutputs.add(desired);
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return SampleSources.of(inputs.toArray(new float[0][]), desiredOutputs.toArray(new float[0][]));
+	}
+}
@@ -0,0 +1,140 @@
+package distributed;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * This transport connects workers running as threads of
+ * the same JVM, for tests and for trying out distributed
+ * training without a cluster.
+ *
+ * Each worker publishes its array in a shared slot, waits
+ * for the others, reads all slots and waits again before
+ * writing its result, so no array is written while another
+ * worker may still read it. Sums are taken in rank order,
+ * as the socket transport does.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class LoopbackTransport implements Transport {
+
+	private final Group group;
+	private final int rank;
+	private float[] buffer = new float[0];
+
+	/**
+	 * Creates the transports of a group of workers,
+	 * one for each thread taking part
+	 * @param workerCount
+	 * @return
+	 */
+	public static LoopbackTransport[] createGroup(int workerCount) {
+
+		if(workerCount < 1)
+			throw new RuntimeException("Worker count should be positive");
+
+		Group group = new Group(workerCount);
+		LoopbackTransport[] transports = new LoopbackTransport[workerCount];
+		for(int rank = 0; rank < workerCount; rank++) {
+			transports[rank] = new LoopbackTransport(group, rank);
+		}
+		return transports;
+	}
+
+	private LoopbackTransport(Group group, int rank) {
+		this.group = group;
+		this.rank = rank;
+	}
+
+	@Override
+	public int getRank() {
+		return this.rank;
+	}
+
+	@Override
+	public int getWorkerCount() {
+		return this.group.slots.length;
+	}
+
+	@Override
+	public void allReduceSum(float[] values) throws IOException {
+
+		group.slots[rank] = values;
+		await();
+
+		if(buffer.length < values.length)
+			buffer = new float[values.length];
+		System.arraycopy(group.slots[0], 0, buffer, 0, values.length);
+		for(int r = 1; r < group.slots.length; r++) {
+			float[] other = group.slots[r];
+			if(other.length != values.length)
+				throw new IOException("Workers reduced arrays of different lengths");
+			for(int i = 0; i < values.length; i++) {
+				buffer[i] += other[i];
+			}
+		}
+		await();
+
+		System.arraycopy(buffer, 0, values, 0, values.length);
+		group.slots[rank] = null;
+	}
+
+	@Override
+	public void broadcast(float[] values, int root) throws IOException {
+
+		group.slots[rank] = values;
+		await();
+
+		float[] source = group.slots[root];
+		if(source.length != values.length)
+			throw new IOException("Workers broadcast arrays of different lengths");
+		if(rank != root) {
+			if(buffer.length < values.length)
+				buffer = new float[values.length];
+			System.arraycopy(source, 0, buffer, 0, values.length);
+		}
+		await();
+
+		if(rank != root)
+			System.arraycopy(buffer, 0, values, 0, values.length);
+		group.slots[rank] = null;
+	}
+
+	private void await() throws IOException {
+		try {
+			group.barrier.await();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the other workers");
+		}
+		catch(BrokenBarrierException e) {
+			throw new IOException("Another worker left the group", e);
+		}
+	}
+
+	/**
+	 * Breaks the barrier so that the other workers fail
+	 * instead of waiting for this one forever
+	 */
+	@Override
+	public void close() {
+		group.barrier.reset();
+	}
+
+	/**
+	 * State shared by the workers of a group
+	 */
+	private static final class Group {
+
+		private final float[][] slots;
+		private final CyclicBarrier barrier;
+
+		Group(int workerCount) {
+			this.slots = new float[workerCount][];
+			this.barrier = new CyclicBarrier(workerCount);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This transport connects workers in different processes or
+ * on different hosts over TCP.
+ *
+ * Worker 0 is the coordinator; every other worker connects to
+ * it and introduces itself with its rank. For a reduction each
+ * worker sends its array to the coordinator, which adds them up
+ * in rank order and sends the sum back to everyone, so every
+ * worker gets exactly the same result. The coordinator handles
+ * (workerCount - 1) times the data of a worker, which suits a
+ * modest number of workers.
+ *
+ * Arrays are sent as a length followed by little-endian floats.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SocketTransport implements Transport {
+
+	private static final int HELLO = 0x414E4E57; // "ANNW"
+
+	private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+	private final int rank;
+	private final int workerCount;
+
+	/**
+	 * Connections to the other workers (coordinator), or to
+	 * the coordinator only (in slot 0) for other workers
+	 */
+	private final Socket[] sockets;
+	private final DataInputStream[] inputs;
+	private final DataOutputStream[] outputs;
+
+	private byte[] bytes = new byte[0];
+	private float[] received = new float[0];
+
+	/**
+	 * Start the coordinator (worker 0) and wait for all
+	 * other workers to connect to it
+	 * @param port
+	 * @param workerCount
+	 * @param timeoutMillis how long to wait for the other workers
+	 * @return
+	 * @throws IOException
+	 */
+	public static SocketTransport coordinator(int port, int workerCount, int timeoutMillis) throws IOException {
+
+		if(workerCount < 1)
+			throw new RuntimeException("Worker count should be positive");
+
+		Socket[] sockets = new Socket[workerCount];
+		ServerSocket server = new ServerSocket(port);
+		try {
+			server.setSoTimeout(timeoutMillis);
+			for(int connected = 1; connected < workerCount; connected++) {
+				Socket socket = server.accept();
+				int hello;
+				int rank;
+				int count;
+				try {
+					// a worker has as long to introduce itself as to connect
+					socket.setSoTimeout(timeoutMillis);
+					DataInputStream in = new DataInputStream(socket.getInputStream());
+					hello = in.readInt();
+					rank = in.readInt();
+					count = in.readInt();
+				}
+				catch(IOException e) {
+					socket.close();
+					throw e;
+				}
+				if(hello != HELLO || count != workerCount || rank < 1 || rank >= workerCount || sockets[rank] != null) {
+					socket.close();
+					throw new IOException("Unexpected worker " + rank + " of " + count);
+				}
+				// training rounds can take any time once the worker is accepted
+				socket.setSoTimeout(0);
+				sockets[rank] = socket;
+			}
+		}
+		catch(IOException e) {
+			for(Socket socket : sockets) {
+				if(socket != null)
+					socket.close();
+			}
+			throw e;
+		}
+		finally {
+			server.close();
+		}
+		return new SocketTransport(0, workerCount, sockets);
+	}
+
+	/**
+	 * Connect a worker to the coordinator, retrying until
+	 * the coordinator is listening or the timeout passes
+	 * @param host
+	 * @param port
+	 * @param rank rank of this worker, from 1 to workerCount - 1
+	 * @param workerCount
+	 * @param timeoutMillis
+	 * @return
+	 * @throws IOException
+	 */
+	public static SocketTransport worker(String host, int port, int rank, int workerCount, 
+			int timeoutMillis) throws IOException {
+
+		if(rank < 1 || rank >= workerCount)
+			throw new RuntimeException(rank + " is out of Range, worker count is : " + workerCount);
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Socket socket;
+		while(true) {
+			socket = new Socket();
+			try {
+				socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+				break;
+			}
+			catch(ConnectException e) {
+				socket.close();
+				if(System.currentTimeMillis() >= deadline)
+					throw e;
+				try {
+					Thread.sleep(50);
+				}
+				catch(InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+		out.writeInt(HELLO);
+		out.writeInt(rank);
+		out.writeInt(workerCount);
+		out.flush();
+
+		Socket[] sockets = new Socket[] {socket};
+		return new SocketTransport(rank, workerCount, sockets);
+	}
+
+	private SocketTransport(int rank, int workerCount, Socket[] sockets) throws IOException {
+
+		this.rank = rank;
+		this.workerCount = workerCount;
+		this.sockets = sockets;
+		this.inputs = new DataInputStream[sockets.length];
+		this.outputs = new DataOutputStream[sockets.length];
+		for(int i = 0; i < sockets.length; i++) {
+			if(sockets[i] == null)
+				continue;
+			sockets[i].setTcpNoDelay(true);
+			inputs[i] = new DataInputStream(new BufferedInputStream(sockets[i].getInputStream(), STREAM_BUFFER_SIZE));
+			outputs[i] = new DataOutputStream(new BufferedOutputStream(sockets[i].getOutputStream(), STREAM_BUFFER_SIZE));
+		}
+	}
+
+	@Override
+	public int getRank() {
+		return this.rank;
+	}
+
+	@Override
+	public int getWorkerCount() {
+		return this.workerCount;
+	}
+
+	@Override
+	public void allReduceSum(float[] values) throws IOException {
+
+		if(rank != 0) {
+			write(0, values);
+			read(0, values);
+			return;
+		}
+
+		// the coordinator adds the arrays up in rank order
+		for(int r = 1; r < workerCount; r++) {
+			float[] other = read(r, null);
+			for(int i = 0; i < values.length; i++) {
+				values[i] += other[i];
+			}
+		}
+		for(int r = 1; r < workerCount; r++) {
+			write(r, values);
+		}
+	}
+
+	@Override
+	public void broadcast(float[] values, int root) throws IOException {
+
+		if(root < 0 || root >= workerCount)
+			throw new RuntimeException(root + " is out of Range, worker count is : " + workerCount);
+
+		if(rank != 0) {
+			if(rank == root)
+				write(0, values);
+			read(0, values);
+			return;
+		}
+
+		if(root != 0)
+			read(root, values);
+		for(int r = 1; r < workerCount; r++) {
+			write(r, values);
+		}
+	}
+
+	private void write(int peer, float[] values) throws IOException {
+
+		int length = 4 * values.length;
+		if(bytes.length < length)
+			bytes = new byte[length];
+		ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(values);
+
+		DataOutputStream out = outputs[peer];
+		out.writeInt(values.length);
+		out.write(bytes, 0, length);
+		out.flush();
+	}
+
+	/**
+	 * Read an array from a peer into the given array,
+	 * or into a reused buffer when it is null
+	 */
+	private float[] read(int peer, float[] values) throws IOException {
+
+		DataInputStream in = inputs[peer];
+		int count = in.readInt();
+		if(values == null) {
+			if(received.length != count)
+				received = new float[count];
+			values = received;
+		}
+		if(count != values.length)
+			throw new IOException("Worker " + peer + " sent " + count + " values instead of " + values.length);
+
+		int length = 4 * count;
+		if(bytes.length < length)
+			bytes = new byte[length];
+		in.readFully(bytes, 0, length);
+		ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for(Socket socket : sockets) {
+			if(socket == null)
+				continue;
+			try {
+				socket.close();
+			}
+			catch(IOException e) {
+				failure = e;
+			}
+		}
+		if(failure != null)
+			throw failure;
+	}
+}
@@ -0,0 +1,24 @@
+package distributed;
+
+/**
+ * This enumeration tells how the replicas of a network
+ * are kept together during distributed training.
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum SyncMode {
+
+	/**
+	 * The gradients of every batch are added up over all
+	 * workers before any weight changes, so every replica
+	 * takes exactly the same steps; one round trip per batch
+	 */
+	GRADIENT_ALL_REDUCE,
+
+	/**
+	 * Every worker trains on its own and the weights are
+	 * averaged every few batches; fewer round trips, but
+	 * the replicas drift apart in between
+	 */
+	PARAMETER_AVERAGING
+}
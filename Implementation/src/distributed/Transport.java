@@ -0,0 +1,41 @@
+package distributed;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A transport connects the workers of a distributed training
+ * run and carries the collective operations between them.
+ *
+ * Every worker has to call the same operations in the same
+ * order with arrays of the same length; each call returns once
+ * all workers have taken part. Results are the same, bit for
+ * bit, on every worker.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface Transport extends Closeable {
+
+	/**
+	 * Position of this worker, from 0 to getWorkerCount() - 1
+	 */
+	int getRank();
+
+	int getWorkerCount();
+
+	/**
+	 * Replace the values of every worker by the element-wise
+	 * sum of the values of all workers
+	 * @param values
+	 * @throws IOException
+	 */
+	void allReduceSum(float[] values) throws IOException;
+
+	/**
+	 * Replace the values of every worker by those of the given worker
+	 * @param values
+	 * @param root rank of the worker whose values are sent
+	 * @throws IOException
+	 */
+	void broadcast(float[] values, int root) throws IOException;
+}
@@ -0,0 +1,20 @@
+package inference;
+
+/**
+ * A predictor which can also calculate the outputs of
+ * several samples in one go, reusing each row of weights
+ * for a whole block of samples.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface BatchPredictor extends Predictor {
+
+	/**
+	 * Calculate the outputs of count samples. Both arrays
+	 * hold the values sample after sample.
+	 * @param inputs
+	 * @param outputs
+	 * @param count number of samples
+	 */
+	void predictBatch(float[] inputs, float[] outputs, int count);
+}
@@ -0,0 +1,447 @@
+package inference;
+
+import maths.Activation;
+import maths.Kernels;
+import maths.SparseVector;
+import neurons.DenseNetwork;
+import neurons.NeuralNetwork;
+import neurons.SignalMode;
+import persistence.WeightSnapshot;
+
+/**
+ * This is a read-only snapshot of a trained neural network
+ * which can only be used to calculate outputs.
+ *
+ * The weights are copied when the snapshot is taken and never
+ * change afterwards, and the model keeps no state about the
+ * last calculation. Intermediate outputs are written into a
+ * Scratch object which is either given by the caller or kept
+ * per thread, so any number of threads can call predict
+ * at the same time without allocating memory.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class InferenceModel implements BatchPredictor {
+
+	private static final Kernels KERNELS = Kernels.get();
+
+	/**
+	 * Number of samples for which a row of weights is
+	 * reused while it is still in the cache
+	 */
+	private static final int SAMPLE_BLOCK_SIZE = 8;
+
+	private final int[] layerSizes;
+	private final float[][] weights;
+	private final float[][] biases;
+	private final Activation[] activations;
+	private final float threshold;
+	private final boolean thresholded;
+	private final int maxLayerSize;
+
+	/**
+	 * Scratch space of each thread which calls predict
+	 * without giving its own scratch space
+	 */
+	private final ThreadLocal<Scratch> threadScratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return createScratch();
+		}
+	};
+
+	/**
+	 * Batch scratch vectors of each thread which calls
+	 * predictBatch, grown to the largest batch seen
+	 */
+	private final ThreadLocal<float[][]> threadBatchScratch = new ThreadLocal<float[][]>() {
+		@Override
+		protected float[][] initialValue() {
+			return new float[2][0];
+		}
+	};
+
+	/**
+	 * Take a snapshot of the current weights of the given network
+	 * @param network
+	 * @return
+	 */
+	public static InferenceModel snapshot(NeuralNetwork network) {
+		return snapshot(network.getDenseNetwork());
+	}
+
+	/**
+	 * Take a snapshot of the current weights of the given network
+	 * @param network
+	 * @return
+	 */
+	public static InferenceModel snapshot(DenseNetwork network) {
+
+		int[] layerSizes = new int[network.getLayerCount()];
+		float[][] weights = new float[layerSizes.length][];
+		float[][] biases = new float[layerSizes.length][];
+		Activation[] activations = new Activation[layerSizes.length];
+		for(int k = 0; k < layerSizes.length; k++) {
+			layerSizes[k] = network.getLayerSize(k);
+			if(k > 0) {
+				weights[k] = network.getWeights(k).clone();
+				biases[k] = network.getBiases(k).clone();
+				activations[k] = network.getActivation(k);
+			}
+		}
+		return new InferenceModel(layerSizes, weights, biases, activations, 
+				network.getThreshold(), network.getSignalMode() == SignalMode.BOOLEAN);
+	}
+
+	/**
+	 * Creates a model with the same layers, activation functions
+	 * and threshold as this one but with the weights and biases
+	 * of the given snapshot, e.g. a training checkpoint
+	 * @param snapshot
+	 * @return
+	 */
+	public InferenceModel withWeights(WeightSnapshot snapshot) {
+
+		if(snapshot.getLayerCount() != layerSizes.length)
+			throw new RuntimeException("Expected " + layerSizes.length + " layers but got " + snapshot.getLayerCount());
+
+		float[][] newWeights = new float[layerSizes.length][];
+		float[][] newBiases = new float[layerSizes.length][];
+		for(int k = 0; k < layerSizes.length; k++) {
+			if(snapshot.getLayerSize(k) != layerSizes[k])
+				throw new RuntimeException("Expected " + layerSizes[k] + " perceptrons in layer " + k 
+						+ " but got " + snapshot.getLayerSize(k));
+			if(k > 0) {
+				newWeights[k] = snapshot.getWeights(k).clone();
+				newBiases[k] = snapshot.getBiases(k).clone();
+			}
+		}
+		return new InferenceModel(layerSizes, newWeights, newBiases, activations, threshold, thresholded);
+	}
+
+	InferenceModel(int[] layerSizes, float[][] weights, float[][] biases, 
+			Activation[] activations, float threshold, boolean thresholded) {
+
+		this.layerSizes = layerSizes;
+		this.weights = weights;
+		this.biases = biases;
+		this.activations = activations;
+		this.threshold = threshold;
+		this.thresholded = thresholded;
+
+		int max = 0;
+		for(int size : layerSizes) {
+			max = Math.max(max, size);
+		}
+		this.maxLayerSize = max;
+	}
+
+	/**
+	 * Calculate the outputs for the given inputs using
+	 * the scratch space of the current thread.
+	 * @param inputs
+	 * @param outputs
+	 */
+	@Override
+	public void predict(float[] inputs, float[] outputs) {
+		predict(inputs, outputs, threadScratch.get());
+	}
+
+	/**
+	 * Calculate the outputs for the given inputs using
+	 * the given scratch space.
+	 * @param inputs
+	 * @param outputs
+	 * @param scratch a scratch space created by this model
+	 */
+	public void predict(float[] inputs, float[] outputs, Scratch scratch) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(inputs.length != layerSizes[0] || outputs.length != layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + layerSizes[0] + " inputs and " + layerSizes[outputLayer]
+					+ " outputs but got " + inputs.length + " and " + outputs.length);
+		checkScratch(scratch);
+
+		forward(inputs, 1, outputs, scratch);
+	}
+
+	/**
+	 * Calculate the outputs of count samples using the batch
+	 * scratch space of the current thread. Each row of weights
+	 * is used for a block of samples before moving to the next
+	 * row, as in the forward pass of the dense network.
+	 * @param inputs
+	 * @param outputs
+	 * @param count number of samples
+	 */
+	@Override
+	public void predictBatch(float[] inputs, float[] outputs, int count) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(inputs.length < count * layerSizes[0] || outputs.length < count * layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + count * layerSizes[0] + " inputs and " 
+					+ count * layerSizes[outputLayer] + " outputs but got " + inputs.length + " and " + outputs.length);
+
+		float[][] scratch = threadBatchScratch.get();
+		if(scratch[0].length < count * maxLayerSize) {
+			scratch = new float[2][count * maxLayerSize];
+			threadBatchScratch.set(scratch);
+		}
+
+		float[] in = inputs;
+		for(int k = 1; k <= outputLayer; k++) {
+			float[] out = (k == outputLayer) ? outputs : scratch[k & 1];
+			float[] w = weights[k];
+			float[] bias = biases[k];
+			int prevLayerSize = layerSizes[k-1];
+			int currLayerSize = layerSizes[k];
+
+			for(int blockStart = 0; blockStart < count; blockStart += SAMPLE_BLOCK_SIZE) {
+				int blockEnd = Math.min(blockStart + SAMPLE_BLOCK_SIZE, count);
+				for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+					for(int b = blockStart; b < blockEnd; b++) {
+						out[b * currLayerSize + j] = bias[j] + KERNELS.dot(w, row, in, b * prevLayerSize, prevLayerSize);
+					}
+				}
+			}
+			for(int b = 0; b < count; b++) {
+				activate(k, out, b * currLayerSize);
+			}
+			in = out;
+		}
+	}
+
+	/**
+	 * Calculate the outputs for binary inputs packed into 64 bit
+	 * words (see MathUtils.packBits) using the given scratch space.
+	 * The first layer only adds up the weights of the inputs
+	 * which are set.
+	 * @param inputBits
+	 * @param wordOffset index of the first word of the inputs
+	 * @param outputs
+	 * @param scratch a scratch space created by this model
+	 */
+	public void predictPacked(long[] inputBits, int wordOffset, float[] outputs, Scratch scratch) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(outputs.length != layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + layerSizes[outputLayer] + " outputs but got " + outputs.length);
+		checkScratch(scratch);
+
+		// positions of the inputs which are set
+		int[] indices = scratch.indices;
+		int inputSize = layerSizes[0];
+		int count = 0;
+		for(int w = 0; w < (inputSize + 63) >>> 6; w++) {
+			long word = inputBits[wordOffset + w];
+			while(word != 0L) {
+				int index = (w << 6) + Long.numberOfTrailingZeros(word);
+				if(index >= inputSize)
+					throw new RuntimeException("Bit " + index + " is out of Range, input size is : " + inputSize);
+				indices[count++] = index;
+				word &= word - 1;
+			}
+		}
+
+		forwardSparse(indices, null, 0, count, outputs, scratch);
+	}
+
+	/**
+	 * Calculate the outputs for packed binary inputs using
+	 * the scratch space of the current thread.
+	 * @param inputBits
+	 * @param wordOffset index of the first word of the inputs
+	 * @param outputs
+	 */
+	public void predictPacked(long[] inputBits, int wordOffset, float[] outputs) {
+		predictPacked(inputBits, wordOffset, outputs, threadScratch.get());
+	}
+
+	/**
+	 * Calculate the outputs for inputs given by the positions
+	 * and the values of the non-zero inputs, using the given
+	 * scratch space. The first layer only reads the weights of
+	 * the non-zero inputs.
+	 * @param indices
+	 * @param values
+	 * @param offset position of the first input in both arrays
+	 * @param count number of non-zero inputs
+	 * @param outputs
+	 * @param scratch a scratch space created by this model
+	 */
+	public void predictSparse(int[] indices, float[] values, int offset, int count,
+			float[] outputs, Scratch scratch) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(outputs.length != layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + layerSizes[outputLayer] + " outputs but got " + outputs.length);
+		checkScratch(scratch);
+		for(int t = offset; t < offset + count; t++) {
+			if(indices[t] < 0 || indices[t] >= layerSizes[0])
+				throw new RuntimeException(indices[t] + " is out of Range, input size is : " + layerSizes[0]);
+		}
+
+		forwardSparse(indices, values, offset, count, outputs, scratch);
+	}
+
+	/**
+	 * Calculate the outputs for sparse inputs using
+	 * the scratch space of the current thread.
+	 * @param inputs
+	 * @param outputs
+	 */
+	public void predict(SparseVector inputs, float[] outputs) {
+		if(inputs.getSize() != layerSizes[0])
+			throw new RuntimeException("Expected " + layerSizes[0] + " inputs but got " + inputs.getSize());
+		predictSparse(inputs.getIndices(), inputs.getValues(), 0, inputs.getNonZeroCount(),
+				outputs, threadScratch.get());
+	}
+
+	/**
+	 * Calculate the first layer from the non-zero inputs, whose
+	 * values are all 1 when values is null, and then the rest
+	 */
+	private void forwardSparse(int[] indices, float[] values, int offset, int count,
+			float[] outputs, Scratch scratch) {
+
+		int outputLayer = layerSizes.length - 1;
+		int inputSize = layerSizes[0];
+		float[] out = (outputLayer == 1) ? outputs : scratch.first;
+		float[] w = weights[1];
+		float[] bias = biases[1];
+		for(int j = 0, row = 0; j < layerSizes[1]; j++, row += inputSize) {
+			float sum = bias[j];
+			if(values == null) {
+				for(int t = offset; t < offset + count; t++) {
+					sum += w[row + indices[t]];
+				}
+			}
+			else {
+				for(int t = offset; t < offset + count; t++) {
+					sum += w[row + indices[t]] * values[t];
+				}
+			}
+			out[j] = sum;
+		}
+		activate(1, out, 0);
+
+		if(outputLayer > 1)
+			forward(out, 2, outputs, scratch);
+	}
+
+	/**
+	 * A scratch space of another model can be used as long as
+	 * every buffer is large enough for this one
+	 */
+	private void checkScratch(Scratch scratch) {
+		if(scratch.first.length < maxLayerSize || scratch.second.length < maxLayerSize
+				|| scratch.indices.length < layerSizes[0])
+			throw new RuntimeException("The scratch space does not belong to this model");
+	}
+
+	/**
+	 * Calculate the outputs of the layers from the given layer
+	 * onwards given the outputs of the layer before it
+	 */
+	private void forward(float[] in, int fromLayer, float[] outputs, Scratch scratch) {
+
+		// the outputs of each layer are written alternately
+		// to the two scratch vectors
+		int outputLayer = layerSizes.length - 1;
+		float[] out = (in == scratch.first) ? scratch.second : scratch.first;
+		for(int k = fromLayer; k <= outputLayer; k++) {
+			if(k == outputLayer)
+				out = outputs;
+
+			float[] w = weights[k];
+			float[] bias = biases[k];
+			int prevLayerSize = layerSizes[k-1];
+			int currLayerSize = layerSizes[k];
+			for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+				out[j] = bias[j] + KERNELS.dot(w, row, in, 0, prevLayerSize);
+			}
+			activate(k, out, 0);
+
+			in = out;
+			out = (out == scratch.first) ? scratch.second : scratch.first;
+		}
+	}
+
+	/**
+	 * Replace the weighted sums of layer k, found at
+	 * the given offset, by its outputs
+	 */
+	private void activate(int k, float[] out, int offset) {
+		int currLayerSize = layerSizes[k];
+		activations[k].apply(out, out, offset, currLayerSize);
+		if(thresholded) {
+			for(int j = offset; j < offset + currLayerSize; j++) {
+				out[j] = out[j] < threshold ? 0.0f : 1.0f;
+			}
+		}
+	}
+
+	/**
+	 * Creates a scratch space which can be used with this
+	 * model by a single thread at a time
+	 * @return
+	 */
+	public Scratch createScratch() {
+		return new Scratch(maxLayerSize, layerSizes[0]);
+	}
+
+	public int getLayerCount() {
+		return this.layerSizes.length;
+	}
+
+	float[] getWeights(int layer) {
+		return this.weights[layer];
+	}
+
+	float[] getBiases(int layer) {
+		return this.biases[layer];
+	}
+
+	Activation getActivation(int layer) {
+		return this.activations[layer];
+	}
+
+	float getThreshold() {
+		return this.threshold;
+	}
+
+	boolean isThresholded() {
+		return this.thresholded;
+	}
+
+	public int getLayerSize(int layer) {
+		return this.layerSizes[layer];
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.layerSizes[0];
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.layerSizes[layerSizes.length - 1];
+	}
+
+	/**
+	 * Scratch vectors holding the outputs of the
+	 * hidden layers during a single prediction.
+	 */
+	public static final class Scratch {
+
+		private final float[] first;
+		private final float[] second;
+		private final int[] indices;
+
+		private Scratch(int size, int inputSize) {
+			this.first = new float[size];
+			this.second = new float[size];
+			this.indices = new int[inputSize];
+		}
+	}
+}
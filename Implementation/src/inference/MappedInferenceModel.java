@@ -0,0 +1,129 @@
+package inference;
+
+import java.nio.FloatBuffer;
+
+import maths.Activation;
+
+/**
+ * This is a read-only neural network model whose weights and
+ * biases live in a memory-mapped model file (see ModelFile).
+ *
+ * Weights are read straight from the mapped buffers, so
+ * loading a model does not depend on its size. Like the
+ * InferenceModel, intermediate outputs are kept in per
+ * thread scratch vectors and predictions allocate nothing.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class MappedInferenceModel implements Predictor {
+
+	private final int[] layerSizes;
+	private final FloatBuffer[] weights;
+	private final FloatBuffer[] biases;
+	private final Activation[] activations;
+	private final float threshold;
+	private final boolean thresholded;
+	private final int maxLayerSize;
+
+	/**
+	 * Scratch vectors of each thread
+	 */
+	private final ThreadLocal<float[][]> threadScratch = new ThreadLocal<float[][]>() {
+		@Override
+		protected float[][] initialValue() {
+			return new float[2][maxLayerSize];
+		}
+	};
+
+	MappedInferenceModel(int[] layerSizes, FloatBuffer[] weights, FloatBuffer[] biases,
+			Activation[] activations, float threshold, boolean thresholded) {
+
+		this.layerSizes = layerSizes;
+		this.weights = weights;
+		this.biases = biases;
+		this.activations = activations;
+		this.threshold = threshold;
+		this.thresholded = thresholded;
+
+		int max = 0;
+		for(int size : layerSizes) {
+			max = Math.max(max, size);
+		}
+		this.maxLayerSize = max;
+	}
+
+	@Override
+	public void predict(float[] inputs, float[] outputs) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(inputs.length != layerSizes[0] || outputs.length != layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + layerSizes[0] + " inputs and " + layerSizes[outputLayer]
+					+ " outputs but got " + inputs.length + " and " + outputs.length);
+
+		float[][] scratch = threadScratch.get();
+		float[] in = inputs;
+		for(int k = 1; k <= outputLayer; k++) {
+			float[] out = (k == outputLayer) ? outputs : scratch[k & 1];
+
+			// absolute gets do not touch the shared buffer position
+			FloatBuffer w = weights[k];
+			FloatBuffer bias = biases[k];
+			int prevLayerSize = layerSizes[k-1];
+			int currLayerSize = layerSizes[k];
+			for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+				float sum = (bias != null) ? bias.get(j) : 0.0f;
+				for(int i = 0; i < prevLayerSize; i++) {
+					sum += w.get(row + i) * in[i];
+				}
+				out[j] = sum;
+			}
+
+			// the weighted sums are replaced by the outputs
+			activations[k].apply(out, out, 0, currLayerSize);
+			if(thresholded) {
+				for(int j = 0; j < currLayerSize; j++) {
+					out[j] = out[j] < threshold ? 0.0f : 1.0f;
+				}
+			}
+
+			in = out;
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.layerSizes[0];
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.layerSizes[layerSizes.length - 1];
+	}
+
+	public int getLayerCount() {
+		return this.layerSizes.length;
+	}
+
+	public int getLayerSize(int layer) {
+		return this.layerSizes[layer];
+	}
+
+	/**
+	 * Copy the mapped weights onto the heap
+	 * @return
+	 */
+	InferenceModel copy() {
+
+		float[][] heapWeights = new float[layerSizes.length][];
+		float[][] heapBiases = new float[layerSizes.length][];
+		for(int k = 1; k < layerSizes.length; k++) {
+			heapWeights[k] = new float[weights[k].capacity()];
+			weights[k].duplicate().get(heapWeights[k]);
+			heapBiases[k] = new float[layerSizes[k]];
+			if(biases[k] != null)
+				biases[k].duplicate().get(heapBiases[k]);
+		}
+		return new InferenceModel(layerSizes.clone(), heapWeights, heapBiases, 
+				activations.clone(), threshold, thresholded);
+	}
+}
@@ -0,0 +1,274 @@
+package inference;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import maths.Activation;
+import maths.ActivationFunction;
+import neurons.DenseNetwork;
+import neurons.NeuralNetwork;
+import neurons.SignalMode;
+
+/**
+ * This class reads and writes the binary model format.
+ *
+ * All values are little-endian and 4 bytes wide, so every
+ * block of weights starts at an aligned position;
+ * <pre>
+ * int     magic number ("ANNM")
+ * int     format version
+ * int     layer count
+ * int     flags (bit 0 = outputs are thresholded to 0/1)
+ * float   threshold
+ * float   learning rate
+ * int[]   layer sizes starting from the input layer
+ * int[]   activation function code of each layer from layer 1 onwards
+ * float[] row-major weights and then biases of each layer from layer 1 onwards
+ * </pre>
+ * Version 1 files, which have a single activation code before
+ * the flags and no biases, can still be loaded.
+ *
+ * Models are loaded by memory-mapping the file, so the weights
+ * are used directly from the page cache without being parsed
+ * and processes on the same host share the same pages.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class ModelFile {
+
+	public static final int MAGIC = 0x4D4E4E41; // "ANNM" in little-endian
+	public static final int VERSION = 2;
+
+	public static final int FLAG_THRESHOLDED = 1;
+
+	private static final int FIXED_HEADER_SIZE = 6 * 4;
+	private static final int VERSION_1_HEADER_SIZE = 7 * 4;
+
+	/**
+	 * Size of the buffer used to write the weights
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+	public static void write(NeuralNetwork network, String fileName) throws IOException {
+		write(network.getDenseNetwork(), Paths.get(fileName));
+	}
+
+	/**
+	 * Write the current weights and biases of the given
+	 * network to the given file, replacing it if it exists.
+	 * Only the built in activation functions can be stored.
+	 * @param network
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(DenseNetwork network, Path file) throws IOException {
+
+		int layerCount = network.getLayerCount();
+
+		ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE + 4 * (2 * layerCount - 1))
+			.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(layerCount);
+		header.putInt(network.getSignalMode() == SignalMode.BOOLEAN ? FLAG_THRESHOLDED : 0);
+		header.putFloat(network.getThreshold());
+		header.putFloat(network.getLearningRate());
+		for(int k = 0; k < layerCount; k++) {
+			header.putInt(network.getLayerSize(k));
+		}
+		for(int k = 1; k < layerCount; k++) {
+			Activation activation = network.getActivation(k);
+			if(!(activation instanceof ActivationFunction))
+				throw new IOException("The activation function of layer " + k + " cannot be stored");
+			header.putInt(((ActivationFunction) activation).getCode());
+		}
+		header.flip();
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			writeFully(channel, header);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			for(int k = 1; k < layerCount; k++) {
+				writeFloats(channel, buffer, network.getWeights(k));
+				writeFloats(channel, buffer, network.getBiases(k));
+			}
+			channel.force(false);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Load the given model file into an inference model
+	 * which keeps its weights on the heap
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static InferenceModel load(Path file) throws IOException {
+		return map(file).copy();
+	}
+
+	public static MappedInferenceModel map(String fileName) throws IOException {
+		return map(Paths.get(fileName));
+	}
+
+	/**
+	 * Memory-map the given model file and build an
+	 * inference model over the mapped weights. The weights
+	 * and biases of each layer are mapped separately, so files
+	 * larger than 2GB can be mapped as long as no single block
+	 * is larger than that.
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a valid model file
+	 */
+	public static MappedInferenceModel map(Path file) throws IOException {
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			// the mappings stay valid after the channel is closed
+			return map(channel, file);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	private static MappedInferenceModel map(FileChannel channel, Path file) throws IOException {
+
+		long fileSize = channel.size();
+		if(fileSize < VERSION_1_HEADER_SIZE)
+			throw new IOException(file + " is not a model file");
+		ByteBuffer fixed = read(channel, 0, FIXED_HEADER_SIZE);
+		if(fixed.getInt(0) != MAGIC)
+			throw new IOException(file + " is not a model file");
+		int version = fixed.getInt(4);
+		if(version != 1 && version != VERSION)
+			throw new IOException("Unsupported model file version " + version + " in " + file);
+
+		int layerCount = fixed.getInt(8);
+		if(layerCount < 2)
+			throw new IOException("Invalid layer count " + layerCount + " in " + file);
+
+		// version 1 had a single (sigmoid) activation code before the flags
+		long headerSize = (version == 1) 
+				? VERSION_1_HEADER_SIZE + 4L * layerCount
+				: FIXED_HEADER_SIZE + 4L * (2L * layerCount - 1);
+		if(headerSize > fileSize)
+			throw new IOException(file + " is truncated");
+		if(headerSize > Integer.MAX_VALUE)
+			throw new IOException("Invalid layer count " + layerCount + " in " + file);
+		ByteBuffer header = read(channel, 0, (int) headerSize);
+
+		int position = (version == 1) ? 16 : 12;
+		int flags = header.getInt(position);
+		float threshold = header.getFloat(position + 4);
+		position += 12;
+		if((flags & ~FLAG_THRESHOLDED) != 0)
+			throw new IOException("Unsupported flags " + flags + " in " + file);
+
+		int[] layerSizes = new int[layerCount];
+		for(int k = 0; k < layerCount; k++, position += 4) {
+			layerSizes[k] = header.getInt(position);
+			if(layerSizes[k] < 1)
+				throw new IOException("Invalid size " + layerSizes[k] + " of layer " + k + " in " + file);
+		}
+
+		Activation[] activations = new Activation[layerCount];
+		for(int k = 1; k < layerCount; k++) {
+			if(version == 1) {
+				activations[k] = ActivationFunction.SIGMOID;
+			}
+			else {
+				try {
+					activations[k] = ActivationFunction.fromCode(header.getInt(position));
+				}
+				catch(RuntimeException e) {
+					throw new IOException(e.getMessage() + " in " + file);
+				}
+				position += 4;
+			}
+		}
+
+		// check the whole file before mapping any of it
+		long dataSize = 0;
+		for(int k = 1; k < layerCount; k++) {
+			long weightCount = (long) layerSizes[k] * layerSizes[k-1];
+			if(4L * weightCount > Integer.MAX_VALUE)
+				throw new IOException("The weights of layer " + k + " in " + file + " are too large to map");
+			dataSize += 4L * weightCount;
+			if(version > 1)
+				dataSize += 4L * layerSizes[k];
+		}
+		if(headerSize + dataSize > fileSize)
+			throw new IOException(file + " is truncated");
+
+		FloatBuffer[] weights = new FloatBuffer[layerCount];
+		FloatBuffer[] biases = new FloatBuffer[layerCount];
+		long offset = headerSize;
+		for(int k = 1; k < layerCount; k++) {
+			weights[k] = mapFloats(channel, offset, layerSizes[k] * layerSizes[k-1]);
+			offset += 4L * weights[k].capacity();
+			if(version > 1) {
+				biases[k] = mapFloats(channel, offset, layerSizes[k]);
+				offset += 4L * biases[k].capacity();
+			}
+		}
+
+		return new MappedInferenceModel(layerSizes, weights, biases, activations,
+				threshold, (flags & FLAG_THRESHOLDED) != 0);
+	}
+
+	/**
+	 * Read the given number of bytes starting at the
+	 * given position of the file into a heap buffer
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException("Unexpected end of the model file");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static FloatBuffer mapFloats(FileChannel channel, long position, int count) throws IOException {
+		MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count);
+		return block.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+	}
+
+	private static void writeFloats(FileChannel channel, ByteBuffer buffer, float[] values) throws IOException {
+
+		buffer.clear();
+		FloatBuffer floats = buffer.asFloatBuffer();
+		for(int offset = 0; offset < values.length; ) {
+			int length = Math.min(floats.capacity(), values.length - offset);
+			floats.clear();
+			floats.put(values, offset, length);
+			buffer.clear();
+			buffer.limit(length * 4);
+			writeFully(channel, buffer);
+			offset += length;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package inference;
+
+/**
+ * A predictor calculates the outputs of a trained
+ * neural network for given inputs.
+ *
+ * Implementations are read-only and can be used by
+ * any number of threads at the same time.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface Predictor {
+
+	/**
+	 * Calculate the outputs for the given inputs
+	 * @param inputs
+	 * @param outputs
+	 */
+	void predict(float[] inputs, float[] outputs);
+
+	int getInputSize();
+
+	int getOutputSize();
+}
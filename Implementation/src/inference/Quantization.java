@@ -0,0 +1,19 @@
+package inference;
+
+/**
+ * This enumeration decides how a QuantizedModel stores its weights.
+ *
+ * The INT8 schemes store each weight as a signed byte times a
+ * scale, either one scale for the whole layer or one per row
+ * (perceptron), which follows rows of very different size more
+ * closely. FLOAT16 stores each weight as a half precision value.
+ * Biases are kept as floats in every scheme.
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum Quantization {
+
+	INT8_PER_LAYER,
+	INT8_PER_ROW,
+	FLOAT16
+}
@@ -0,0 +1,211 @@
+package inference;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import data.CsvRecordReader;
+
+/**
+ * This class compares the outputs of a quantized model with
+ * those of the float model it was taken from on a set of
+ * validation samples.
+ *
+ * A sample is counted as correct when its predicted class
+ * matches the desired class; the class is the largest output,
+ * or whether the output is at least 0.5 for a single output.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class QuantizationReport {
+
+	private static final int BATCH_SIZE = 64;
+
+	private final int sampleCount;
+	private final double maxDifference;
+	private final double meanDifference;
+	private final double referenceAccuracy;
+	private final double candidateAccuracy;
+	private final double agreement;
+
+	private QuantizationReport(int sampleCount, double maxDifference, double meanDifference,
+			double referenceAccuracy, double candidateAccuracy, double agreement) {
+		this.sampleCount = sampleCount;
+		this.maxDifference = maxDifference;
+		this.meanDifference = meanDifference;
+		this.referenceAccuracy = referenceAccuracy;
+		this.candidateAccuracy = candidateAccuracy;
+		this.agreement = agreement;
+	}
+
+	/**
+	 * Compare two models on the given samples
+	 * @param reference the float model
+	 * @param candidate the quantized model
+	 * @param inputs inputs of the samples, sample after sample
+	 * @param desiredOutputs desired outputs of the samples, sample after sample
+	 * @param sampleCount
+	 * @return
+	 */
+	public static QuantizationReport compare(BatchPredictor reference, BatchPredictor candidate,
+			float[] inputs, float[] desiredOutputs, int sampleCount) {
+
+		int inputSize = reference.getInputSize();
+		int outputSize = reference.getOutputSize();
+		if(candidate.getInputSize() != inputSize || candidate.getOutputSize() != outputSize)
+			throw new RuntimeException("The models do not have the same inputs and outputs");
+
+		float[] batchInputs = new float[BATCH_SIZE * inputSize];
+		float[] referenceOutputs = new float[BATCH_SIZE * outputSize];
+		float[] candidateOutputs = new float[BATCH_SIZE * outputSize];
+
+		double maxDifference = 0.0;
+		double totalDifference = 0.0;
+		int referenceCorrect = 0;
+		int candidateCorrect = 0;
+		int agreed = 0;
+		for(int first = 0; first < sampleCount; first += BATCH_SIZE) {
+			int count = Math.min(BATCH_SIZE, sampleCount - first);
+			System.arraycopy(inputs, first * inputSize, batchInputs, 0, count * inputSize);
+			reference.predictBatch(batchInputs, referenceOutputs, count);
+			candidate.predictBatch(batchInputs, candidateOutputs, count);
+
+			for(int b = 0; b < count; b++) {
+				int offset = b * outputSize;
+				for(int j = offset; j < offset + outputSize; j++) {
+					double difference = Math.abs(referenceOutputs[j] - candidateOutputs[j]);
+					maxDifference = Math.max(maxDifference, difference);
+					totalDifference += difference;
+				}
+				int desiredClass = predictedClass(desiredOutputs, (first + b) * outputSize, outputSize);
+				int referenceClass = predictedClass(referenceOutputs, offset, outputSize);
+				int candidateClass = predictedClass(candidateOutputs, offset, outputSize);
+				if(referenceClass == desiredClass)
+					referenceCorrect++;
+				if(candidateClass == desiredClass)
+					candidateCorrect++;
+				if(referenceClass == candidateClass)
+					agreed++;
+			}
+		}
+
+		double samples = Math.max(sampleCount, 1);
+		return new QuantizationReport(sampleCount, maxDifference, totalDifference / (samples * outputSize),
+				referenceCorrect / samples, candidateCorrect / samples, agreed / samples);
+	}
+
+	private static int predictedClass(float[] outputs, int offset, int outputSize) {
+		if(outputSize == 1)
+			return outputs[offset] >= 0.5f ? 1 : 0;
+
+		int best = 0;
+		for(int j = 1; j < outputSize; j++) {
+			if(outputs[offset + j] > outputs[offset + best])
+				best = j;
+		}
+		return best;
+	}
+
+	public int getSampleCount() {
+		return this.sampleCount;
+	}
+
+	/**
+	 * Largest difference of any single output
+	 */
+	public double getMaxDifference() {
+		return this.maxDifference;
+	}
+
+	/**
+	 * Mean difference of the outputs
+	 */
+	public double getMeanDifference() {
+		return this.meanDifference;
+	}
+
+	public double getReferenceAccuracy() {
+		return this.referenceAccuracy;
+	}
+
+	public double getCandidateAccuracy() {
+		return this.candidateAccuracy;
+	}
+
+	/**
+	 * Accuracy of the quantized model minus that of the float model
+	 */
+	public double getAccuracyDelta() {
+		return this.candidateAccuracy - this.referenceAccuracy;
+	}
+
+	/**
+	 * Fraction of the samples for which both models predict the same class
+	 */
+	public double getAgreement() {
+		return this.agreement;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("accuracy %.4f -> %.4f (delta %+.4f), agreement %.4f, output difference max %.6f mean %.6f",
+				referenceAccuracy, candidateAccuracy, getAccuracyDelta(), agreement, maxDifference, meanDifference);
+	}
+
+	/**
+	 * Report the accuracy delta of every quantization of a
+	 * model file on a CSV validation set (inputs followed by
+	 * desired outputs on each line);
+	 * <pre>
+	 * QuantizationReport model-file validation-csv
+	 * </pre>
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 2) {
+			System.err.println("Usage: QuantizationReport model-file validation-csv");
+			System.exit(1);
+		}
+
+		InferenceModel model = ModelFile.load(Paths.get(args[0]));
+		int inputSize = model.getInputSize();
+		int outputSize = model.getOutputSize();
+
+		float[] inputs = new float[BATCH_SIZE * inputSize];
+		float[] desiredOutputs = new float[BATCH_SIZE * outputSize];
+		int sampleCount = 0;
+		CsvRecordReader reader = new CsvRecordReader(Paths.get(args[1]), inputSize, outputSize);
+		try {
+			while(true) {
+				if(sampleCount + BATCH_SIZE > inputs.length / inputSize) {
+					inputs = Arrays.copyOf(inputs, inputs.length * 2);
+					desiredOutputs = Arrays.copyOf(desiredOutputs, desiredOutputs.length * 2);
+				}
+				float[] batchInputs = new float[BATCH_SIZE * inputSize];
+				float[] batchOutputs = new float[BATCH_SIZE * outputSize];
+				int count = reader.read(batchInputs, batchOutputs, BATCH_SIZE);
+				if(count == 0)
+					break;
+				System.arraycopy(batchInputs, 0, inputs, sampleCount * inputSize, count * inputSize);
+				System.arraycopy(batchOutputs, 0, desiredOutputs, sampleCount * outputSize, count * outputSize);
+				sampleCount += count;
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		long floatBytes = 0;
+		for(int k = 1; k < model.getLayerCount(); k++) {
+			floatBytes += 4L * model.getLayerSize(k) * model.getLayerSize(k-1);
+		}
+		System.out.println(sampleCount + " samples, float weights : " + floatBytes + " bytes");
+		for(Quantization quantization : Quantization.values()) {
+			QuantizedModel quantized = QuantizedModel.quantize(model, quantization);
+			QuantizationReport report = compare(model, quantized, inputs, desiredOutputs, sampleCount);
+			System.out.println(quantization + " : " + quantized.getWeightBytes() + " bytes, " + report);
+		}
+	}
+}
@@ -0,0 +1,324 @@
+package inference;
+
+import maths.Activation;
+import maths.Kernels;
+import maths.MathUtils;
+
+/**
+ * This is a read-only model whose weights are stored in
+ * fewer bits than floats (see Quantization), taken from
+ * a trained InferenceModel.
+ *
+ * With int8 weights the inputs of each layer are quantized
+ * to signed bytes as well, with one scale per sample, and
+ * the weighted sums are accumulated as integers before they
+ * are scaled back to floats. Float16 weights are widened to
+ * floats one row at a time, and each row is then used for
+ * a whole block of samples.
+ *
+ * Like the InferenceModel, intermediate values are kept in
+ * per thread scratch space, so any number of threads can
+ * predict at the same time.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class QuantizedModel implements BatchPredictor {
+
+	private static final Kernels KERNELS = Kernels.get();
+
+	/**
+	 * Number of samples for which a row of weights is
+	 * reused while it is still in the cache
+	 */
+	private static final int SAMPLE_BLOCK_SIZE = 8;
+
+	/**
+	 * The float value of every half precision value,
+	 * so widening a weight is a single table lookup
+	 */
+	private static final float[] HALF_TO_FLOAT = buildHalfTable();
+
+	private final Quantization quantization;
+	private final int[] layerSizes;
+	private final byte[][] byteWeights;
+	private final float[][] rowScales;
+	private final short[][] halfWeights;
+	private final float[][] biases;
+	private final Activation[] activations;
+	private final float threshold;
+	private final boolean thresholded;
+	private final int maxLayerSize;
+
+	/**
+	 * Scratch space of each thread, grown to the largest batch seen
+	 */
+	private final ThreadLocal<Scratch> threadScratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch(1, maxLayerSize);
+		}
+	};
+
+	/**
+	 * Quantize the weights of the given model
+	 * @param model
+	 * @param quantization
+	 * @return
+	 */
+	public static QuantizedModel quantize(InferenceModel model, Quantization quantization) {
+		return new QuantizedModel(model, quantization);
+	}
+
+	private QuantizedModel(InferenceModel model, Quantization quantization) {
+
+		int layerCount = model.getLayerCount();
+		this.quantization = quantization;
+		this.layerSizes = new int[layerCount];
+		this.biases = new float[layerCount][];
+		this.activations = new Activation[layerCount];
+		this.threshold = model.getThreshold();
+		this.thresholded = model.isThresholded();
+
+		int max = 0;
+		for(int k = 0; k < layerCount; k++) {
+			layerSizes[k] = model.getLayerSize(k);
+			max = Math.max(max, layerSizes[k]);
+			if(k > 0) {
+				biases[k] = model.getBiases(k).clone();
+				activations[k] = model.getActivation(k);
+			}
+		}
+		this.maxLayerSize = max;
+
+		if(quantization == Quantization.FLOAT16) {
+			this.byteWeights = null;
+			this.rowScales = null;
+			this.halfWeights = new short[layerCount][];
+			for(int k = 1; k < layerCount; k++) {
+				float[] w = model.getWeights(k);
+				short[] half = new short[w.length];
+				for(int i = 0; i < w.length; i++) {
+					half[i] = MathUtils.toFloat16(w[i]);
+				}
+				halfWeights[k] = half;
+			}
+		}
+		else {
+			this.halfWeights = null;
+			this.byteWeights = new byte[layerCount][];
+			this.rowScales = new float[layerCount][];
+			for(int k = 1; k < layerCount; k++) {
+				quantizeLayer(k, model.getWeights(k), quantization == Quantization.INT8_PER_ROW);
+			}
+		}
+	}
+
+	/**
+	 * Symmetric quantization to [-127, 127] with the largest
+	 * weight of each row (or of the layer) mapped to 127
+	 */
+	private void quantizeLayer(int k, float[] w, boolean perRow) {
+
+		int rowLength = layerSizes[k-1];
+		int rowCount = layerSizes[k];
+		byte[] q = new byte[w.length];
+		float[] scales = new float[rowCount];
+
+		float layerMax = 0.0f;
+		for(int i = 0; i < w.length; i++) {
+			layerMax = Math.max(layerMax, Math.abs(w[i]));
+		}
+
+		for(int j = 0, row = 0; j < rowCount; j++, row += rowLength) {
+			float rowMax = layerMax;
+			if(perRow) {
+				rowMax = 0.0f;
+				for(int i = row; i < row + rowLength; i++) {
+					rowMax = Math.max(rowMax, Math.abs(w[i]));
+				}
+			}
+			float scale = rowMax / 127.0f;
+			scales[j] = scale;
+			float inverse = scale == 0.0f ? 0.0f : 1.0f / scale;
+			for(int i = row; i < row + rowLength; i++) {
+				q[i] = (byte) Math.round(w[i] * inverse);
+			}
+		}
+		byteWeights[k] = q;
+		rowScales[k] = scales;
+	}
+
+	@Override
+	public void predict(float[] inputs, float[] outputs) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(inputs.length != layerSizes[0] || outputs.length != layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + layerSizes[0] + " inputs and " + layerSizes[outputLayer]
+					+ " outputs but got " + inputs.length + " and " + outputs.length);
+		predictBatch(inputs, outputs, 1);
+	}
+
+	@Override
+	public void predictBatch(float[] inputs, float[] outputs, int count) {
+
+		int outputLayer = layerSizes.length - 1;
+		if(inputs.length < count * layerSizes[0] || outputs.length < count * layerSizes[outputLayer])
+			throw new RuntimeException("Expected " + count * layerSizes[0] + " inputs and " 
+					+ count * layerSizes[outputLayer] + " outputs but got " + inputs.length + " and " + outputs.length);
+
+		Scratch scratch = threadScratch.get();
+		if(scratch.capacity < count) {
+			scratch = new Scratch(count, maxLayerSize);
+			threadScratch.set(scratch);
+		}
+
+		float[] in = inputs;
+		for(int k = 1; k <= outputLayer; k++) {
+			float[] out = (k == outputLayer) ? outputs : scratch.values[k & 1];
+			if(halfWeights != null)
+				halfLayer(k, in, out, count, scratch.row);
+			else
+				byteLayer(k, in, out, count, scratch);
+
+			int currLayerSize = layerSizes[k];
+			for(int b = 0; b < count; b++) {
+				activate(k, out, b * currLayerSize);
+			}
+			in = out;
+		}
+	}
+
+	/**
+	 * Weighted sums of layer k from float16 weights
+	 */
+	private void halfLayer(int k, float[] in, float[] out, int count, float[] row) {
+
+		short[] w = halfWeights[k];
+		float[] bias = biases[k];
+		int prevLayerSize = layerSizes[k-1];
+		int currLayerSize = layerSizes[k];
+
+		for(int j = 0, rowStart = 0; j < currLayerSize; j++, rowStart += prevLayerSize) {
+			for(int i = 0; i < prevLayerSize; i++) {
+				row[i] = HALF_TO_FLOAT[w[rowStart + i] & 0xffff];
+			}
+			for(int b = 0; b < count; b++) {
+				out[b * currLayerSize + j] = bias[j] + KERNELS.dot(row, 0, in, b * prevLayerSize, prevLayerSize);
+			}
+		}
+	}
+
+	/**
+	 * Weighted sums of layer k from int8 weights and inputs
+	 * quantized per sample, accumulated as integers
+	 */
+	private void byteLayer(int k, float[] in, float[] out, int count, Scratch scratch) {
+
+		byte[] w = byteWeights[k];
+		float[] scales = rowScales[k];
+		float[] bias = biases[k];
+		int prevLayerSize = layerSizes[k-1];
+		int currLayerSize = layerSizes[k];
+
+		byte[] q = scratch.quantizedInputs;
+		float[] inputScales = scratch.inputScales;
+		for(int b = 0; b < count; b++) {
+			int offset = b * prevLayerSize;
+			float max = 0.0f;
+			for(int i = offset; i < offset + prevLayerSize; i++) {
+				max = Math.max(max, Math.abs(in[i]));
+			}
+			inputScales[b] = max / 127.0f;
+			float inverse = max == 0.0f ? 0.0f : 127.0f / max;
+			for(int i = offset; i < offset + prevLayerSize; i++) {
+				q[i] = (byte) Math.round(in[i] * inverse);
+			}
+		}
+
+		for(int blockStart = 0; blockStart < count; blockStart += SAMPLE_BLOCK_SIZE) {
+			int blockEnd = Math.min(blockStart + SAMPLE_BLOCK_SIZE, count);
+			for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+				for(int b = blockStart; b < blockEnd; b++) {
+					int sum = KERNELS.dot(w, row, q, b * prevLayerSize, prevLayerSize);
+					out[b * currLayerSize + j] = bias[j] + sum * scales[j] * inputScales[b];
+				}
+			}
+		}
+	}
+
+	private static float[] buildHalfTable() {
+		float[] table = new float[1 << 16];
+		for(int h = 0; h < table.length; h++) {
+			table[h] = MathUtils.fromFloat16((short) h);
+		}
+		return table;
+	}
+
+	private void activate(int k, float[] out, int offset) {
+		int currLayerSize = layerSizes[k];
+		activations[k].apply(out, out, offset, currLayerSize);
+		if(thresholded) {
+			for(int j = offset; j < offset + currLayerSize; j++) {
+				out[j] = out[j] < threshold ? 0.0f : 1.0f;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes taken by the weights
+	 * (including their scales) of all layers
+	 * @return
+	 */
+	public long getWeightBytes() {
+		long bytes = 0;
+		for(int k = 1; k < layerSizes.length; k++) {
+			if(halfWeights != null)
+				bytes += 2L * halfWeights[k].length;
+			else
+				bytes += byteWeights[k].length + 4L * rowScales[k].length;
+		}
+		return bytes;
+	}
+
+	public Quantization getQuantization() {
+		return this.quantization;
+	}
+
+	public int getLayerCount() {
+		return this.layerSizes.length;
+	}
+
+	public int getLayerSize(int layer) {
+		return this.layerSizes[layer];
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.layerSizes[0];
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.layerSizes[layerSizes.length - 1];
+	}
+
+	/**
+	 * Scratch space of a single thread
+	 */
+	private static final class Scratch {
+
+		private final int capacity;
+		private final float[][] values;
+		private final byte[] quantizedInputs;
+		private final float[] inputScales;
+		private final float[] row;
+
+		Scratch(int capacity, int maxLayerSize) {
+			this.capacity = capacity;
+			this.values = new float[2][capacity * maxLayerSize];
+			this.quantizedInputs = new byte[capacity * maxLayerSize];
+			this.inputScales = new float[capacity];
+			this.row = new float[maxLayerSize];
+		}
+	}
+}
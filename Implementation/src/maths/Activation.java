@@ -0,0 +1,36 @@
+package maths;
+
+/**
+ * An activation function turns the weighted sums of a
+ * layer into the outputs of that layer.
+ *
+ * Both methods work on a range of a whole vector at once
+ * so implementations can use tight loops. The source and
+ * destination arrays may be the same array.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface Activation {
+
+	/**
+	 * Calculate the outputs for the weighted sums in
+	 * [offset, offset + length)
+	 * @param sums weighted sums
+	 * @param outputs where the outputs are written
+	 * @param offset
+	 * @param length
+	 */
+	void apply(float[] sums, float[] outputs, int offset, int length);
+
+	/**
+	 * Calculate the derivative for each perceptron in
+	 * [offset, offset + length) given both its weighted
+	 * sum and its output.
+	 * @param sums weighted sums
+	 * @param outputs outputs calculated by apply
+	 * @param derivatives where the derivatives are written
+	 * @param offset
+	 * @param length
+	 */
+	void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length);
+}
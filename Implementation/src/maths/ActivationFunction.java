@@ -4,13 +4,196 @@ package maths;
  * This eneumeration is used by the perceptron class
  * to determine the activation function it should
  * use when calculating the output.
- * 
+ *
  * Note that LINEAR is used only for input terminals
  * where you get the input as the output as it is.
+ *
+ * Each function also works on whole vectors (see
+ * Activation) so the dense network can use them for
+ * entire layers.
+ *
+ * SOFTMAX is meant for the output layer only. Its derivative
+ * is taken as 1, since (desired output - actual output) already
+ * is the gradient of the cross entropy of a softmax layer.
  * @author wimal perera (09/10008)
  *
  */
-public enum ActivationFunction {
-	LINEAR,
-	SIGMOID;
+public enum ActivationFunction implements Activation {
+
+	LINEAR(0) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			if(sums != outputs)
+				System.arraycopy(sums, offset, outputs, offset, length);
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			fill(derivatives, offset, length, 1.0f);
+		}
+	},
+
+	SIGMOID(1) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			MathUtils.sigmoid(sums, outputs, offset, length);
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			MathUtils.diffSigmoidFromOutput(outputs, derivatives, offset, length);
+		}
+	},
+
+	/**
+	 * The sigmoid function using a lookup table
+	 * (error below 1e-6, see MathUtils.tableSigmoid)
+	 */
+	TABLE_SIGMOID(7) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			MathUtils.tableSigmoid(sums, outputs, offset, length);
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			MathUtils.diffSigmoidFromOutput(outputs, derivatives, offset, length);
+		}
+	},
+
+	/**
+	 * A cheap sigmoid shaped function without exponentials;
+	 * 0.5 * x / (1 + |x|) + 0.5
+	 */
+	FAST_SIGMOID(2) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				float x = sums[i];
+				outputs[i] = 0.5f * x / (1.0f + Math.abs(x)) + 0.5f;
+			}
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				float d = 1.0f + Math.abs(sums[i]);
+				derivatives[i] = 0.5f / (d * d);
+			}
+		}
+	},
+
+	TANH(3) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				outputs[i] = (float) Math.tanh(sums[i]);
+			}
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				float y = outputs[i];
+				derivatives[i] = 1.0f - y * y;
+			}
+		}
+	},
+
+	RELU(4) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				outputs[i] = Math.max(sums[i], 0.0f);
+			}
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				derivatives[i] = sums[i] > 0.0f ? 1.0f : 0.0f;
+			}
+		}
+	},
+
+	LEAKY_RELU(5) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				float x = sums[i];
+				outputs[i] = x > 0.0f ? x : LEAKY_SLOPE * x;
+			}
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			for(int i = offset; i < offset + length; i++) {
+				derivatives[i] = sums[i] > 0.0f ? 1.0f : LEAKY_SLOPE;
+			}
+		}
+	},
+
+	SOFTMAX(6) {
+		@Override
+		public void apply(float[] sums, float[] outputs, int offset, int length) {
+			// subtract the maximum so that exp never overflows
+			float max = Float.NEGATIVE_INFINITY;
+			for(int i = offset; i < offset + length; i++) {
+				max = Math.max(max, sums[i]);
+			}
+			float total = 0.0f;
+			for(int i = offset; i < offset + length; i++) {
+				float e = (float) Math.exp(sums[i] - max);
+				outputs[i] = e;
+				total += e;
+			}
+			float scale = 1.0f / total;
+			for(int i = offset; i < offset + length; i++) {
+				outputs[i] *= scale;
+			}
+		}
+
+		@Override
+		public void derivative(float[] sums, float[] outputs, float[] derivatives, int offset, int length) {
+			fill(derivatives, offset, length, 1.0f);
+		}
+	};
+
+	/**
+	 * Slope of LEAKY_RELU for negative weighted sums
+	 */
+	public static final float LEAKY_SLOPE = 0.01f;
+
+	/**
+	 * A stable code used when storing the
+	 * activation function in a file
+	 */
+	private final int code;
+
+	private ActivationFunction(int code) {
+		this.code = code;
+	}
+
+	public int getCode() {
+		return this.code;
+	}
+
+	/**
+	 * Find the activation function with the given code
+	 * @param code
+	 * @return
+	 */
+	public static ActivationFunction fromCode(int code) {
+		for(ActivationFunction function : values()) {
+			if(function.code == code)
+				return function;
+		}
+		throw new RuntimeException("Unknown activation function code : " + code);
+	}
+
+	private static void fill(float[] array, int offset, int length, float value) {
+		for(int i = offset; i < offset + length; i++) {
+			array[i] = value;
+		}
+	}
 }
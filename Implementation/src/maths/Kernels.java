@@ -0,0 +1,89 @@
+package maths;
+
+/**
+ * This class provides the vector loops the networks spend
+ * most of their time in.
+ *
+ * Two implementations exist; a plain scalar one, and one
+ * using the SIMD instructions of the processor through the
+ * jdk.incubator.vector module. The vector implementation is
+ * used when the module is available, i.e. when the JVM is
+ * started with --add-modules jdk.incubator.vector, and the
+ * scalar one otherwise. The choice can be forced by setting
+ * the system property ann.kernels to "scalar" or "vector".
+ * @author wimal perera (09/10008)
+ *
+ */
+public abstract class Kernels {
+
+	public static final String PROPERTY = "ann.kernels";
+
+	private static final Kernels SELECTED = select();
+
+	/**
+	 * Returns the kernels selected for this JVM
+	 * @return
+	 */
+	public static Kernels get() {
+		return SELECTED;
+	}
+
+	public static Kernels scalar() {
+		return ScalarKernels.INSTANCE;
+	}
+
+	/**
+	 * Returns the vector kernels, or null if the
+	 * jdk.incubator.vector module is not available
+	 * @return
+	 */
+	public static Kernels vector() {
+		try {
+			// loaded by name so that this class does not need the module
+			return (Kernels) Class.forName("maths.VectorKernels").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e) {
+			return null;
+		}
+		catch(LinkageError e) {
+			return null;
+		}
+	}
+
+	private static Kernels select() {
+
+		String choice = System.getProperty(PROPERTY, "auto");
+		if(choice.equals("scalar"))
+			return scalar();
+
+		Kernels vector = vector();
+		if(vector == null && choice.equals("vector"))
+			throw new RuntimeException("Vector kernels need --add-modules jdk.incubator.vector");
+		return vector != null ? vector : scalar();
+	}
+
+	/**
+	 * Returns the sum of a[aOffset + i] * b[bOffset + i]
+	 * for i in [0, length)
+	 */
+	public abstract float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+	/**
+	 * Adds alpha * x[xOffset + i] to y[yOffset + i]
+	 * for i in [0, length)
+	 */
+	public abstract void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+	/**
+	 * Returns the sum of a[aOffset + i] * b[bOffset + i]
+	 * for i in [0, length) accumulated as an int
+	 */
+	public abstract int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+	public abstract String getName();
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
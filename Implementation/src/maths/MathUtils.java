@@ -1,6 +1,6 @@
 package maths;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class contains the utility functions
@@ -9,21 +9,29 @@ import java.util.Random;
  */
 public class MathUtils {
 	
-	/**
-     * Our random number generator.
+    /**
+     * The sigmoid lookup table covers [-SIGMOID_TABLE_RANGE, SIGMOID_TABLE_RANGE]
+     * with SIGMOID_TABLE_STEPS entries per unit. With linear interpolation
+     * between entries the error is below 1e-6 everywhere, including
+     * the saturated values outside the range.
      */
-    private final static Random _random = new Random();
+    private final static float SIGMOID_TABLE_RANGE = 16.0f;
+    private final static int SIGMOID_TABLE_STEPS = 128;
+    private final static float[] _sigmoidTable = buildSigmoidTable();
 	
 	/**
      * Return a random number within the specified range
+     * drawn from the generator of the current thread
+     * (networks draw their weights from a seeded
+     * generator instead, see WeightInitializer)
      * 
      * @param lower range
      * @param upper range
      * @return a random number within the specified range
      */
-    public static synchronized float getBoundedRandom(float lower, float upper) {
+    public static float getBoundedRandom(float lower, float upper) {
     	float range = upper - lower;
-    	float result = _random.nextFloat() * range + lower;
+    	float result = ThreadLocalRandom.current().nextFloat() * range + lower;
     	return(result);
     }
     
@@ -33,7 +41,7 @@ public class MathUtils {
      * @return
      */
     public static float sigmoid(float x) {
-    	return (float) (1.0f / (1.0f + Math.exp(-1.0f * x)));
+    	return 1.0f / (1.0f + (float) Math.exp(-x));
     }
     
     /**
@@ -42,7 +50,150 @@ public class MathUtils {
      * @return
      */
     public static float diffSigmoid(float x) {
-    	return (float) (Math.exp(-1.0f * x) / Math.pow(1 + Math.exp(-1.0 * x), 2));
+    	return diffSigmoidFromOutput(sigmoid(x));
+    }
+    
+    /**
+     * This is the differentiated sigmoid function calculated
+     * from the output of the sigmoid, i.e. s * (1 - s),
+     * which does not need any exponentials.
+     * @param sigmoid
+     * @return
+     */
+    public static float diffSigmoidFromOutput(float sigmoid) {
+    	return sigmoid * (1.0f - sigmoid);
+    }
+    
+    /**
+     * This is an approximation of the sigmoid function using
+     * a lookup table and linear interpolation. The error is
+     * below 1e-6 for any input.
+     * @param x
+     * @return
+     */
+    public static float tableSigmoid(float x) {
+    	if(x <= -SIGMOID_TABLE_RANGE)
+    		return _sigmoidTable[0];
+    	if(x >= SIGMOID_TABLE_RANGE)
+    		return _sigmoidTable[_sigmoidTable.length - 1];
+    	
+    	float position = (x + SIGMOID_TABLE_RANGE) * SIGMOID_TABLE_STEPS;
+    	int index = (int) position;
+    	// inputs just below the range can round up to the last entry
+    	if(index >= _sigmoidTable.length - 1)
+    		return _sigmoidTable[_sigmoidTable.length - 1];
+    	float fraction = position - index;
+    	float lower = _sigmoidTable[index];
+    	return lower + fraction * (_sigmoidTable[index + 1] - lower);
+    }
+    
+    /**
+     * The sigmoid function for a range of an array
+     * @param src
+     * @param dst
+     * @param offset
+     * @param length
+     */
+    public static void sigmoid(float[] src, float[] dst, int offset, int length) {
+    	for(int i = offset; i < offset + length; i++) {
+    		dst[i] = 1.0f / (1.0f + (float) Math.exp(-src[i]));
+    	}
+    }
+    
+    /**
+     * The lookup table sigmoid function for a range of an array
+     * @param src
+     * @param dst
+     * @param offset
+     * @param length
+     */
+    public static void tableSigmoid(float[] src, float[] dst, int offset, int length) {
+    	for(int i = offset; i < offset + length; i++) {
+    		dst[i] = tableSigmoid(src[i]);
+    	}
+    }
+    
+    /**
+     * The differentiated sigmoid function for a range of an
+     * array, calculated from the outputs of the sigmoid
+     * @param sigmoids
+     * @param dst
+     * @param offset
+     * @param length
+     */
+    public static void diffSigmoidFromOutput(float[] sigmoids, float[] dst, int offset, int length) {
+    	for(int i = offset; i < offset + length; i++) {
+    		float s = sigmoids[i];
+    		dst[i] = s * (1.0f - s);
+    	}
+    }
+    
+    private static float[] buildSigmoidTable() {
+    	int size = (int) (2 * SIGMOID_TABLE_RANGE * SIGMOID_TABLE_STEPS) + 1;
+    	float[] table = new float[size];
+    	for(int i = 0; i < size; i++) {
+    		double x = (double) i / SIGMOID_TABLE_STEPS - SIGMOID_TABLE_RANGE;
+    		table[i] = (float) (1.0 / (1.0 + Math.exp(-x)));
+    	}
+    	return table;
+    }
+    
+    /**
+     * Convert a float to the bits of the nearest IEEE 754 half
+     * precision value (ties to even); values beyond the half
+     * precision range become infinite
+     * @param value
+     * @return
+     */
+    public static short toFloat16(float value) {
+    	
+    	int bits = Float.floatToRawIntBits(value);
+    	short sign = (short) ((bits & 0x80000000) >> 16);
+    	if(Float.isNaN(value))
+    		return (short) (sign | 0x7e00);
+    	
+    	float abs = Math.abs(value);
+    	if(abs >= 65520.0f)
+    		return (short) (sign | 0x7c00);
+    	if(abs <= 0x1.0p-25f)
+    		return sign;
+    	
+    	// half precision subnormals keep the implicit bit in the significand
+    	int exponent = Math.getExponent(value);
+    	int shift = 13;
+    	int implicitBit = 0;
+    	if(exponent < -14) {
+    		shift += -14 - exponent;
+    		exponent = -15;
+    		implicitBit = 0x00800000;
+    	}
+    	int significand = (bits & 0x007fffff) | implicitBit;
+    	int half = significand >> shift;
+    	int lowest = significand & (1 << shift);
+    	int round = significand & (1 << (shift - 1));
+    	int sticky = significand & ((1 << (shift - 1)) - 1);
+    	if(round != 0 && (lowest | sticky) != 0)
+    		half++;
+    	return (short) (sign | (((exponent + 15) << 10) + half));
+    }
+    
+    /**
+     * Convert the bits of an IEEE 754 half precision value to a float
+     * @param half
+     * @return
+     */
+    public static float fromFloat16(short half) {
+    	
+    	int sign = (half & 0x8000) << 16;
+    	int exponent = (half & 0x7c00) >> 10;
+    	int significand = half & 0x03ff;
+    	if(exponent == 0) {
+    		float magnitude = 0x1.0p-24f * significand;
+    		return sign == 0 ? magnitude : -magnitude;
+    	}
+    	if(exponent == 31)
+    		return Float.intBitsToFloat(sign | 0x7f800000 | (significand << 13));
+    	return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (significand << 13));
     }
     
     /**
@@ -57,6 +208,67 @@ public class MathUtils {
     		return 0.0f;
     }
     
+    /**
+     * A convenient method to convert boolean vectors
+     * into float vectors
+     * @param vectors
+     * @return
+     */
+    public static float[][] booleanArrayToFloatArray(boolean[][] vectors) {
+    	
+    	float[][] result = new float[vectors.length][];
+    	for(int i = 0; i < vectors.length; i++) {
+    		result[i] = new float[vectors[i].length];
+    		for(int j = 0; j < vectors[i].length; j++) {
+    			result[i][j] = booleanToFloat(vectors[i][j]);
+    		}
+    	}
+    	return result;
+    }
+    
+    /**
+     * Returns the number of 64 bit words needed
+     * to hold the given number of bits
+     * @param bitCount
+     * @return
+     */
+    public static int wordCount(int bitCount) {
+    	return (bitCount + 63) >>> 6;
+    }
+    
+    /**
+     * Pack a boolean vector into 64 bit words; bit (i % 64)
+     * of word (i / 64) is set when element i is true
+     * @param vector
+     * @param words where the bits are written
+     * @param wordOffset index of the first word to write
+     */
+    public static void packBits(boolean[] vector, long[] words, int wordOffset) {
+    	
+    	int wordCount = wordCount(vector.length);
+    	for(int w = 0; w < wordCount; w++) {
+    		long word = 0L;
+    		int end = Math.min(64, vector.length - 64 * w);
+    		for(int b = 0; b < end; b++) {
+    			if(vector[64 * w + b])
+    				word |= 1L << b;
+    		}
+    		words[wordOffset + w] = word;
+    	}
+    }
+    
+    /**
+     * A convenient method to pack a boolean vector into
+     * 64 bit words
+     * @param vector
+     * @return
+     */
+    public static long[] packBits(boolean[] vector) {
+    	long[] words = new long[wordCount(vector.length)];
+    	packBits(vector, words, 0);
+    	return words;
+    }
+    
     /**
      * A convenient method which can be used to write a boolean array
      * to the output
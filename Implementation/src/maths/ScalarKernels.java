@@ -0,0 +1,42 @@
+package maths;
+
+/**
+ * Plain Java loops, used when the vector
+ * module is not available.
+ * @author wimal perera (09/10008)
+ *
+ */
+final class ScalarKernels extends Kernels {
+
+	static final ScalarKernels INSTANCE = new ScalarKernels();
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		float sum = 0.0f;
+		for(int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+		int sum = 0;
+		for(int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,81 @@
+package maths;
+
+/**
+ * This is a vector of which only the positions and the
+ * values of the elements which are not zero are kept.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class SparseVector {
+
+	private final int size;
+	private final int[] indices;
+	private final float[] values;
+
+	/**
+	 * @param size number of elements including the zeros
+	 * @param indices positions of the non-zero elements
+	 * @param values values of the non-zero elements
+	 */
+	public SparseVector(int size, int[] indices, float[] values) {
+
+		if(indices.length != values.length)
+			throw new RuntimeException("There should be one value for each index");
+		for(int index : indices) {
+			if(index < 0 || index >= size)
+				throw new RuntimeException(index + " is out of Range, size is : " + size);
+		}
+
+		this.size = size;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * Keep only the non-zero elements of the given vector
+	 * @param vector
+	 * @return
+	 */
+	public static SparseVector fromDense(float[] vector) {
+
+		int count = 0;
+		for(float value : vector) {
+			if(value != 0.0f)
+				count++;
+		}
+
+		int[] indices = new int[count];
+		float[] values = new float[count];
+		for(int i = 0, t = 0; i < vector.length; i++) {
+			if(vector[i] != 0.0f) {
+				indices[t] = i;
+				values[t++] = vector[i];
+			}
+		}
+		return new SparseVector(vector.length, indices, values);
+	}
+
+	public float[] toDense() {
+		float[] vector = new float[size];
+		for(int t = 0; t < indices.length; t++) {
+			vector[indices[t]] += values[t];
+		}
+		return vector;
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+	public int getNonZeroCount() {
+		return this.indices.length;
+	}
+
+	public int[] getIndices() {
+		return this.indices;
+	}
+
+	public float[] getValues() {
+		return this.values;
+	}
+}
@@ -0,0 +1,102 @@
+package maths;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Loops using the widest SIMD registers of the processor
+ * through the jdk.incubator.vector module. The elements left
+ * over after the last full vector are done one by one.
+ *
+ * This class is only loaded by Kernels.vector(), so the rest
+ * of the code runs without the module.
+ * @author wimal perera (09/10008)
+ *
+ */
+final class VectorKernels extends Kernels {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+
+		int bound = SPECIES.loopBound(length);
+		FloatVector acc = FloatVector.zero(SPECIES);
+		int i = 0;
+		for(; i < bound; i += SPECIES.length()) {
+			FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+			FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+			acc = va.fma(vb, acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for(; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+
+		int bound = SPECIES.loopBound(length);
+		FloatVector va = FloatVector.broadcast(SPECIES, alpha);
+		int i = 0;
+		for(; i < bound; i += SPECIES.length()) {
+			FloatVector vx = FloatVector.fromArray(SPECIES, x, xOffset + i);
+			FloatVector vy = FloatVector.fromArray(SPECIES, y, yOffset + i);
+			vx.mul(va).add(vy).intoArray(y, yOffset + i);
+		}
+		for(; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+
+		VectorSpecies<Byte> byteSpecies = ByteSpecies.BYTES;
+		VectorSpecies<Integer> intSpecies = ByteSpecies.INTS;
+		int parts = ByteSpecies.PARTS;
+		int bound = byteSpecies.loopBound(length);
+		IntVector acc = IntVector.zero(intSpecies);
+		int i = 0;
+		for(; i < bound; i += byteSpecies.length()) {
+			ByteVector va = ByteVector.fromArray(byteSpecies, a, aOffset + i);
+			ByteVector vb = ByteVector.fromArray(byteSpecies, b, bOffset + i);
+			for(int part = 0; part < parts; part++) {
+				IntVector wa = (IntVector) va.convertShape(VectorOperators.B2I, intSpecies, part);
+				IntVector wb = (IntVector) vb.convertShape(VectorOperators.B2I, intSpecies, part);
+				acc = wa.mul(wb).add(acc);
+			}
+		}
+		int sum = acc.reduceLanes(VectorOperators.ADD);
+		for(; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Species of the int8 dot product, kept apart so that they
+	 * are only set up when int8 weights are used. Bytes are
+	 * widened to ints; a byte vector is a quarter of the width of
+	 * an int vector but at least 64 bits (the narrowest shape),
+	 * so on narrow processors it is widened in several parts.
+	 */
+	private static final class ByteSpecies {
+
+		private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+		private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, 
+				VectorShape.forBitSize(Math.max(64, INTS.vectorBitSize() / 4)));
+		private static final int PARTS = BYTES.length() / INTS.length();
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.length() + " floats)";
+	}
+}
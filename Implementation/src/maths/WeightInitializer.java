@@ -0,0 +1,95 @@
+package maths;
+
+import java.util.SplittableRandom;
+
+/**
+ * This enumeration decides how the initial weights of a
+ * layer are drawn, given the number of inputs (fan-in) and
+ * the number of outputs (fan-out) of each perceptron.
+ *
+ * UNIFORM is the original scheme of drawing every weight
+ * from [-1, 1] whatever the size of the layer. The XAVIER
+ * (Glorot) schemes keep the variance of the signals the same
+ * in both directions and suit sigmoid and tanh layers; the HE
+ * schemes scale to the fan-in only and suit ReLU layers.
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum WeightInitializer {
+
+	UNIFORM {
+		@Override
+		public void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random) {
+			uniform(weights, 1.0, random);
+		}
+	},
+
+	/**
+	 * Uniform in [-r, r] with r = sqrt(6 / (fanIn + fanOut))
+	 */
+	XAVIER_UNIFORM {
+		@Override
+		public void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random) {
+			uniform(weights, Math.sqrt(6.0 / (fanIn + fanOut)), random);
+		}
+	},
+
+	/**
+	 * Normal with standard deviation sqrt(2 / (fanIn + fanOut))
+	 */
+	XAVIER_NORMAL {
+		@Override
+		public void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random) {
+			normal(weights, Math.sqrt(2.0 / (fanIn + fanOut)), random);
+		}
+	},
+
+	/**
+	 * Uniform in [-r, r] with r = sqrt(6 / fanIn)
+	 */
+	HE_UNIFORM {
+		@Override
+		public void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random) {
+			uniform(weights, Math.sqrt(6.0 / fanIn), random);
+		}
+	},
+
+	/**
+	 * Normal with standard deviation sqrt(2 / fanIn)
+	 */
+	HE_NORMAL {
+		@Override
+		public void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random) {
+			normal(weights, Math.sqrt(2.0 / fanIn), random);
+		}
+	};
+
+	/**
+	 * Fill the weights of a layer with random values
+	 * @param weights
+	 * @param fanIn number of inputs of each perceptron
+	 * @param fanOut number of perceptrons in the layer
+	 * @param random
+	 */
+	public abstract void initialize(float[] weights, int fanIn, int fanOut, SplittableRandom random);
+
+	private static void uniform(float[] weights, double limit, SplittableRandom random) {
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = (float) ((random.nextDouble() * 2.0 - 1.0) * limit);
+		}
+	}
+
+	/**
+	 * Normal values from the Box-Muller transform,
+	 * two for each pair of uniform values
+	 */
+	private static void normal(float[] weights, double deviation, SplittableRandom random) {
+		for(int i = 0; i < weights.length; i += 2) {
+			double radius = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * deviation;
+			double angle = 2.0 * Math.PI * random.nextDouble();
+			weights[i] = (float) (radius * Math.cos(angle));
+			if(i + 1 < weights.length)
+				weights[i + 1] = (float) (radius * Math.sin(angle));
+		}
+	}
+}
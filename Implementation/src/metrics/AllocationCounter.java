@@ -0,0 +1,47 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * This class reads the number of bytes allocated by the current
+ * thread, where the JVM supports it (HotSpot does).
+ * @author wimal perera (09/10008)
+ *
+ */
+final class AllocationCounter {
+
+	private static final com.sun.management.ThreadMXBean THREADS = lookup();
+
+	private AllocationCounter() {
+	}
+
+	private static com.sun.management.ThreadMXBean lookup() {
+		try {
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if(threads instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+				if(sunThreads.isThreadAllocatedMemorySupported()) {
+					sunThreads.setThreadAllocatedMemoryEnabled(true);
+					return sunThreads;
+				}
+			}
+		}
+		catch(Throwable t) {
+			// not available on this JVM
+		}
+		return null;
+	}
+
+	static boolean isSupported() {
+		return THREADS != null;
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread
+	 * so far, or -1 if the JVM cannot tell
+	 */
+	static long currentThreadAllocatedBytes() {
+		return THREADS == null ? -1L : THREADS.getCurrentThreadAllocatedBytes();
+	}
+}
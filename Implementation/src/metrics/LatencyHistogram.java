@@ -0,0 +1,63 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This is a lock free histogram of durations in nanoseconds
+ * with one bucket per power of two, so recording a value is a
+ * single atomic increment. Percentiles are accurate to within
+ * a factor of two, which is enough to see where the time goes.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKET_COUNT = 64;
+
+	/**
+	 * buckets[i] counts the values v with 2^(i-1) <= v < 2^i
+	 * (bucket 0 counts zero)
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	public void record(long nanos) {
+		int bucket = nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+		buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given
+	 * percentile, or 0 if nothing was recorded
+	 * @param percentile in (0, 100]
+	 * @return
+	 */
+	public long getPercentile(double percentile) {
+
+		long total = getCount();
+		if(total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets.get(i);
+			if(seen >= rank)
+				return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public long getCount() {
+		long total = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			total += buckets.get(i);
+		}
+		return total;
+	}
+
+	public void reset() {
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package metrics;
+
+/**
+ * This is a copy of the training metrics of a network taken
+ * at one point in time. Arrays hold one element per layer
+ * (element 0, the input layer, is always 0).
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class MetricsSnapshot {
+
+	private final double elapsedSeconds;
+	private final long samples;
+	private final long batches;
+	private final double lastLoss;
+	private final double meanLoss;
+	private final long errorCount;
+	private final long[] forwardNanos;
+	private final long[] backwardNanos;
+	private final long[] updateNanos;
+	private final double[] gradientNorms;
+	private final double[] updateMagnitudes;
+	private final long allocatedBytes;
+	private final long stepNanosP50;
+	private final long stepNanosP99;
+
+	MetricsSnapshot(double elapsedSeconds, long samples, long batches, double lastLoss,
+			double meanLoss, long errorCount, long[] forwardNanos, long[] backwardNanos,
+			long[] updateNanos, double[] gradientNorms, double[] updateMagnitudes,
+			long allocatedBytes, long stepNanosP50, long stepNanosP99) {
+		this.elapsedSeconds = elapsedSeconds;
+		this.samples = samples;
+		this.batches = batches;
+		this.lastLoss = lastLoss;
+		this.meanLoss = meanLoss;
+		this.errorCount = errorCount;
+		this.forwardNanos = forwardNanos;
+		this.backwardNanos = backwardNanos;
+		this.updateNanos = updateNanos;
+		this.gradientNorms = gradientNorms;
+		this.updateMagnitudes = updateMagnitudes;
+		this.allocatedBytes = allocatedBytes;
+		this.stepNanosP50 = stepNanosP50;
+		this.stepNanosP99 = stepNanosP99;
+	}
+
+	/**
+	 * Seconds since the metrics were created or reset
+	 */
+	public double getElapsedSeconds() {
+		return this.elapsedSeconds;
+	}
+
+	public long getSamples() {
+		return this.samples;
+	}
+
+	public long getBatches() {
+		return this.batches;
+	}
+
+	public double getSamplesPerSecond() {
+		return elapsedSeconds > 0.0 ? samples / elapsedSeconds : 0.0;
+	}
+
+	/**
+	 * Mean loss per sample of the last batch
+	 */
+	public double getLastLoss() {
+		return this.lastLoss;
+	}
+
+	/**
+	 * Mean loss per sample of all batches
+	 */
+	public double getMeanLoss() {
+		return this.meanLoss;
+	}
+
+	public long getErrorCount() {
+		return this.errorCount;
+	}
+
+	/**
+	 * Total time spent on the forward pass of each layer
+	 */
+	public long[] getForwardNanos() {
+		return this.forwardNanos.clone();
+	}
+
+	/**
+	 * Total time spent on the backward pass of each layer
+	 */
+	public long[] getBackwardNanos() {
+		return this.backwardNanos.clone();
+	}
+
+	/**
+	 * Total time spent updating the weights of each layer
+	 */
+	public long[] getUpdateNanos() {
+		return this.updateNanos.clone();
+	}
+
+	/**
+	 * Norm of the average weight changes of each layer in the last
+	 * sampled batch (see TrainingMetrics.setNormInterval)
+	 */
+	public double[] getGradientNorms() {
+		return this.gradientNorms.clone();
+	}
+
+	/**
+	 * Norm of the change the optimizer made to the weights
+	 * of each layer in the last sampled batch
+	 */
+	public double[] getUpdateMagnitudes() {
+		return this.updateMagnitudes.clone();
+	}
+
+	/**
+	 * Bytes allocated by the thread updating the weights
+	 * while training, or -1 if the JVM cannot tell
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * Median time between two weight updates
+	 * (accurate to within a factor of two)
+	 */
+	public long getStepNanosP50() {
+		return this.stepNanosP50;
+	}
+
+	public long getStepNanosP99() {
+		return this.stepNanosP99;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("samples : ").append(samples)
+			.append(", batches : ").append(batches)
+			.append(", samples/s : ").append(String.format("%.1f", getSamplesPerSecond()))
+			.append(", last loss : ").append(lastLoss)
+			.append(", mean loss : ").append(meanLoss)
+			.append(", step p50/p99 (ns) : ").append(stepNanosP50).append('/').append(stepNanosP99)
+			.append(", allocated bytes : ").append(allocatedBytes);
+		for(int k = 1; k < forwardNanos.length; k++) {
+			builder.append("\r\nlayer ").append(k)
+				.append(" forward (ms) : ").append(forwardNanos[k] / 1000000)
+				.append(", backward (ms) : ").append(backwardNanos[k] / 1000000)
+				.append(", update (ms) : ").append(updateNanos[k] / 1000000)
+				.append(", gradient norm : ").append(gradientNorms[k])
+				.append(", update magnitude : ").append(updateMagnitudes[k]);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,384 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects metrics about the training of a network:
+ * throughput, loss, the time spent on each layer, the norms of
+ * the gradients and of the weight updates, and the memory
+ * allocated while training.
+ *
+ * Counters are LongAdders, so worker threads of a parallel
+ * trainer can record at the same time without contending on a
+ * lock. Metrics are read by taking a snapshot, or over JMX once
+ * registered with the platform MBean server.
+ *
+ * A network only records metrics while a TrainingMetrics object
+ * is attached to it, otherwise nothing is measured at all.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class TrainingMetrics implements TrainingMetricsMXBean {
+
+	private final int layerCount;
+
+	private final LongAdder samples = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final DoubleAdder totalLoss = new DoubleAdder();
+	private volatile double lastLoss = Double.NaN;
+
+	private final LongAdder[] forwardNanos;
+	private final LongAdder[] backwardNanos;
+	private final LongAdder[] updateNanos;
+
+	/**
+	 * Norms of the last sampled batch of each layer, kept as raw double bits
+	 */
+	private final AtomicLongArray gradientNorms;
+	private final AtomicLongArray updateMagnitudes;
+
+	/**
+	 * Time between two weight updates
+	 */
+	private final LatencyHistogram stepHistogram = new LatencyHistogram();
+	private final LongAdder allocatedBytes = new LongAdder();
+
+	/**
+	 * Measuring the norms takes extra passes over all weights,
+	 * so they are only measured every this many updates
+	 */
+	public static final int DEFAULT_NORM_INTERVAL = 16;
+
+	private volatile int normInterval = DEFAULT_NORM_INTERVAL;
+
+	/**
+	 * Updates left until the norms are measured again
+	 * (only touched by the updating thread)
+	 */
+	private int updatesUntilNorms;
+
+	/**
+	 * Copies of the weights before an update, used to measure
+	 * the size of the update (only touched by the updating thread)
+	 */
+	private final float[][] previousWeights;
+
+	private volatile long startNanos;
+
+	/**
+	 * Set by reset(), which can be called from any thread (e.g.
+	 * over JMX); the recording thread then starts measuring the
+	 * time between updates and its allocations afresh
+	 */
+	private volatile boolean rebaseline;
+
+	/**
+	 * Only touched by the thread recording the steps
+	 */
+	private long lastStepNanos;
+	private long lastAllocationMark;
+	private Thread lastRecordingThread;
+
+	private ObjectName objectName;
+
+	/**
+	 * @param layerCount number of layers of the network, including the input layer
+	 */
+	public TrainingMetrics(int layerCount) {
+
+		this.layerCount = layerCount;
+		this.forwardNanos = createAdders(layerCount);
+		this.backwardNanos = createAdders(layerCount);
+		this.updateNanos = createAdders(layerCount);
+		this.gradientNorms = new AtomicLongArray(layerCount);
+		this.updateMagnitudes = new AtomicLongArray(layerCount);
+		this.previousWeights = new float[layerCount][];
+		reset();
+	}
+
+	private static LongAdder[] createAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for(int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	public void recordForward(int layer, long nanos) {
+		forwardNanos[layer].add(nanos);
+	}
+
+	public void recordBackward(int layer, long nanos) {
+		backwardNanos[layer].add(nanos);
+	}
+
+	public void recordUpdate(int layer, long nanos) {
+		updateNanos[layer].add(nanos);
+	}
+
+	/**
+	 * Record the norm of the average weight and bias
+	 * changes of a layer for the current batch
+	 * @param layer
+	 * @param norm
+	 */
+	public void recordGradientNorm(int layer, double norm) {
+		gradientNorms.set(layer, Double.doubleToRawLongBits(norm));
+	}
+
+	/**
+	 * Record the norm of the change the optimizer made
+	 * to the weights of a layer for the current batch
+	 * @param layer
+	 * @param magnitude
+	 */
+	public void recordUpdateMagnitude(int layer, double magnitude) {
+		updateMagnitudes.set(layer, Double.doubleToRawLongBits(magnitude));
+	}
+
+	/**
+	 * Check whether the norms should be measured for the
+	 * coming update. Only to be used by the thread updating
+	 * the weights, once per update.
+	 * @return
+	 */
+	public boolean isNormDue() {
+		if(--updatesUntilNorms > 0)
+			return false;
+		updatesUntilNorms = normInterval;
+		return true;
+	}
+
+	/**
+	 * Measure the gradient and update norms every given
+	 * number of updates (1 to measure them for every update)
+	 * @param interval
+	 */
+	public void setNormInterval(int interval) {
+		if(interval < 1)
+			throw new RuntimeException("Norm interval should be positive");
+		this.normInterval = interval;
+	}
+
+	public int getNormInterval() {
+		return this.normInterval;
+	}
+
+	/**
+	 * Returns a buffer of the given length to keep a copy
+	 * of the weights of a layer in. Only to be used by the
+	 * thread updating the weights.
+	 * @param layer
+	 * @param length
+	 * @return
+	 */
+	public float[] getWeightBuffer(int layer, int length) {
+		float[] buffer = previousWeights[layer];
+		if(buffer == null || buffer.length != length) {
+			buffer = new float[length];
+			previousWeights[layer] = buffer;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Record a weight update made for the given number of
+	 * samples. Called by the thread updating the weights, after
+	 * the update.
+	 * @param sampleCount
+	 * @param loss sum of the loss of those samples
+	 * @param errors number of those samples with a wrong output
+	 */
+	public void recordStep(int sampleCount, double loss, int errors) {
+
+		samples.add(sampleCount);
+		batches.increment();
+		errorCount.add(errors);
+		totalLoss.add(loss);
+		if(sampleCount > 0)
+			lastLoss = loss / sampleCount;
+
+		long now = System.nanoTime();
+		long mark = AllocationCounter.currentThreadAllocatedBytes();
+		Thread thread = Thread.currentThread();
+		if(rebaseline) {
+			rebaseline = false;
+			lastStepNanos = startNanos;
+			lastAllocationMark = -1L;
+		}
+		stepHistogram.record(now - lastStepNanos);
+		lastStepNanos = now;
+
+		// only count allocations of the same thread
+		if(mark >= 0 && lastAllocationMark >= 0 && thread == lastRecordingThread && mark >= lastAllocationMark)
+			allocatedBytes.add(mark - lastAllocationMark);
+		lastAllocationMark = mark;
+		lastRecordingThread = thread;
+	}
+
+	/**
+	 * Take a copy of all metrics
+	 * @return
+	 */
+	public MetricsSnapshot snapshot() {
+		return new MetricsSnapshot((System.nanoTime() - startNanos) / 1e9, getSamples(), getBatches(),
+				getLastLoss(), getMeanLoss(), getErrorCount(), getForwardNanos(), getBackwardNanos(),
+				getUpdateNanos(), getGradientNorms(), getUpdateMagnitudes(), getAllocatedBytes(),
+				getStepNanosP50(), getStepNanosP99());
+	}
+
+	/**
+	 * Publish these metrics over JMX under the given name
+	 * @param name
+	 * @return the name the metrics were registered under
+	 */
+	public synchronized ObjectName register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(objectName != null)
+				server.unregisterMBean(objectName);
+			objectName = new ObjectName("ann:type=TrainingMetrics,name=" + ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+			return objectName;
+		}
+		catch(Exception e) {
+			throw new RuntimeException("Could not register training metrics : " + name, e);
+		}
+	}
+
+	/**
+	 * Stop publishing these metrics over JMX
+	 */
+	public synchronized void unregister() {
+		if(objectName == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+		catch(Exception e) {
+			throw new RuntimeException("Could not unregister training metrics : " + objectName, e);
+		}
+		finally {
+			objectName = null;
+		}
+	}
+
+	@Override
+	public void reset() {
+		samples.reset();
+		batches.reset();
+		errorCount.reset();
+		totalLoss.reset();
+		lastLoss = Double.NaN;
+		for(int k = 0; k < layerCount; k++) {
+			forwardNanos[k].reset();
+			backwardNanos[k].reset();
+			updateNanos[k].reset();
+			gradientNorms.set(k, 0L);
+			updateMagnitudes.set(k, 0L);
+		}
+		stepHistogram.reset();
+		allocatedBytes.reset();
+		startNanos = System.nanoTime();
+		rebaseline = true;
+	}
+
+	public int getLayerCount() {
+		return this.layerCount;
+	}
+
+	@Override
+	public long getSamples() {
+		return samples.sum();
+	}
+
+	@Override
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	@Override
+	public double getSamplesPerSecond() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return seconds > 0.0 ? getSamples() / seconds : 0.0;
+	}
+
+	@Override
+	public double getLastLoss() {
+		return this.lastLoss;
+	}
+
+	@Override
+	public double getMeanLoss() {
+		long count = getSamples();
+		return count == 0 ? Double.NaN : totalLoss.sum() / count;
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	@Override
+	public long[] getForwardNanos() {
+		return sums(forwardNanos);
+	}
+
+	@Override
+	public long[] getBackwardNanos() {
+		return sums(backwardNanos);
+	}
+
+	@Override
+	public long[] getUpdateNanos() {
+		return sums(updateNanos);
+	}
+
+	private static long[] sums(LongAdder[] adders) {
+		long[] result = new long[adders.length];
+		for(int i = 0; i < adders.length; i++) {
+			result[i] = adders[i].sum();
+		}
+		return result;
+	}
+
+	@Override
+	public double[] getGradientNorms() {
+		return doubles(gradientNorms);
+	}
+
+	@Override
+	public double[] getUpdateMagnitudes() {
+		return doubles(updateMagnitudes);
+	}
+
+	private static double[] doubles(AtomicLongArray bits) {
+		double[] result = new double[bits.length()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = Double.longBitsToDouble(bits.get(i));
+		}
+		return result;
+	}
+
+	@Override
+	public long getAllocatedBytes() {
+		return AllocationCounter.isSupported() ? allocatedBytes.sum() : -1L;
+	}
+
+	@Override
+	public long getStepNanosP50() {
+		return stepHistogram.getPercentile(50.0);
+	}
+
+	@Override
+	public long getStepNanosP99() {
+		return stepHistogram.getPercentile(99.0);
+	}
+}
@@ -0,0 +1,42 @@
+package metrics;
+
+/**
+ * The management interface through which the training
+ * metrics of a network are published over JMX.
+ * Array attributes hold one element per layer
+ * (element 0, the input layer, is always 0).
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface TrainingMetricsMXBean {
+
+	long getSamples();
+
+	long getBatches();
+
+	double getSamplesPerSecond();
+
+	double getLastLoss();
+
+	double getMeanLoss();
+
+	long getErrorCount();
+
+	long[] getForwardNanos();
+
+	long[] getBackwardNanos();
+
+	long[] getUpdateNanos();
+
+	double[] getGradientNorms();
+
+	double[] getUpdateMagnitudes();
+
+	long getAllocatedBytes();
+
+	long getStepNanosP50();
+
+	long getStepNanosP99();
+
+	void reset();
+}
@@ -0,0 +1,237 @@
+package neurons;
+
+import maths.SparseVector;
+
+/**
+ * This class holds the scratch vectors used while training
+ * a dense network on a batch of samples, i.e. the outputs,
+ * the weighted sums, the derivatives and the delta values of each layer for
+ * each sample in the batch.
+ *
+ * Values of a single layer are kept sample after sample in
+ * one array, so the value of perceptron j for sample b is
+ * found at index (b * layerSize + j).
+ *
+ * Inputs can instead be given in sparse form (see SparseBatch),
+ * as packed bits or index/value pairs, in which case the input layer is not
+ * filled in and the first layer only reads the non-zero inputs.
+ * All samples of a batch have to use the same form.
+ *
+ * A workspace only belongs to one thread at a time.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class BatchWorkspace {
+
+	/**
+	 * Maximum number of samples this workspace can hold
+	 */
+	private final int capacity;
+
+	private final int[] layerSizes;
+
+	/**
+	 * Outputs (layer 0 holds the inputs), weighted sums,
+	 * derivatives and delta values of each layer
+	 */
+	final float[][] outputs;
+	final float[][] weightedSums;
+	final float[][] derivatives;
+	final float[][] deltas;
+
+	/**
+	 * Desired outputs of each sample
+	 */
+	final float[] desiredOutputs;
+
+	/**
+	 * Inputs of the batch in sparse form, used
+	 * instead of outputs[0] when sparseInputs is set
+	 */
+	final SparseBatch sparseBatch;
+	boolean sparseInputs;
+
+	public BatchWorkspace(int[] layerSizes, int capacity) {
+
+		this.capacity = capacity;
+		this.layerSizes = layerSizes.clone();
+
+		int layerCount = layerSizes.length;
+		this.outputs = new float[layerCount][];
+		this.weightedSums = new float[layerCount][];
+		this.derivatives = new float[layerCount][];
+		this.deltas = new float[layerCount][];
+
+		this.outputs[0] = new float[capacity * layerSizes[0]];
+		for(int k = 1; k < layerCount; k++) {
+			this.outputs[k] = new float[capacity * layerSizes[k]];
+			this.weightedSums[k] = new float[capacity * layerSizes[k]];
+			this.derivatives[k] = new float[capacity * layerSizes[k]];
+			this.deltas[k] = new float[capacity * layerSizes[k]];
+		}
+		this.desiredOutputs = new float[capacity * layerSizes[layerCount - 1]];
+		this.sparseBatch = new SparseBatch(layerSizes[0], capacity);
+	}
+
+	/**
+	 * Copy the inputs of a single sample into the workspace
+	 * @param sample
+	 * @param inputs
+	 */
+	public void setInput(int sample, float[] inputs) {
+		int size = layerSizes[0];
+		if(inputs.length != size)
+			throw new RuntimeException("Expected " + size + " inputs but got " + inputs.length);
+		useDenseInputs(sample);
+		System.arraycopy(inputs, 0, outputs[0], checkSample(sample) * size, size);
+	}
+
+	/**
+	 * Set the inputs of a single sample from binary inputs packed
+	 * into 64 bit words (see MathUtils.packBits). Samples have to
+	 * be set in order starting from sample 0.
+	 * @param sample
+	 * @param bits
+	 * @param wordOffset index of the first word of the sample
+	 */
+	public void setPackedInput(int sample, long[] bits, int wordOffset) {
+		startSparseSample(sample);
+		sparseBatch.addPackedRow(bits, wordOffset);
+	}
+
+	/**
+	 * Set the inputs of a single sample from the positions and
+	 * the values of its non-zero inputs. Samples have to be set
+	 * in order starting from sample 0.
+	 * @param sample
+	 * @param indices
+	 * @param values
+	 * @param offset position of the first input in both arrays
+	 * @param count number of non-zero inputs
+	 */
+	public void setSparseInput(int sample, int[] indices, float[] values, int offset, int count) {
+		startSparseSample(sample);
+		sparseBatch.addRow(indices, values, offset, count);
+	}
+
+	public void setSparseInput(int sample, SparseVector inputs) {
+		startSparseSample(sample);
+		sparseBatch.addRow(inputs);
+	}
+
+	/**
+	 * Copy the inputs of a whole batch of samples
+	 * given in sparse form into the workspace
+	 * @param inputs
+	 */
+	public void setSparseInputs(SparseBatch inputs) {
+		if(inputs.getRowCount() > capacity)
+			throw new RuntimeException(inputs.getRowCount() + " is out of Range, workspace capacity is : " + capacity);
+		sparseInputs = true;
+		sparseBatch.copyFrom(inputs);
+	}
+
+	/**
+	 * Set the desired outputs of a single sample from binary
+	 * values packed into 64 bit words
+	 * @param sample
+	 * @param bits
+	 * @param wordOffset index of the first word of the sample
+	 */
+	public void setPackedDesiredOutput(int sample, long[] bits, int wordOffset) {
+		int size = layerSizes[layerSizes.length - 1];
+		int offset = checkSample(sample) * size;
+		for(int j = 0; j < size; j++) {
+			long word = bits[wordOffset + (j >>> 6)];
+			desiredOutputs[offset + j] = ((word >>> (j & 63)) & 1L) != 0L ? 1.0f : 0.0f;
+		}
+	}
+
+	private void useDenseInputs(int sample) {
+		if(sample == 0)
+			sparseInputs = false;
+		else if(sparseInputs)
+			throw new RuntimeException("All samples of a batch have to use the same form of inputs");
+	}
+
+	private void startSparseSample(int sample) {
+		checkSample(sample);
+		if(sample == 0) {
+			sparseInputs = true;
+			sparseBatch.clear();
+		}
+		else if(!sparseInputs || sample != sparseBatch.getRowCount())
+			throw new RuntimeException("Sparse inputs have to be set in order starting from sample 0");
+	}
+
+	/**
+	 * Copy the desired outputs of a single sample into the workspace
+	 * @param sample
+	 * @param desired
+	 */
+	public void setDesiredOutput(int sample, float[] desired) {
+		int size = layerSizes[layerSizes.length - 1];
+		if(desired.length != size)
+			throw new RuntimeException("Expected " + size + " outputs but got " + desired.length);
+		System.arraycopy(desired, 0, desiredOutputs, checkSample(sample) * size, size);
+	}
+
+	/**
+	 * Copy the desired outputs of a single sample, found at
+	 * the given offset of an array, into the workspace
+	 * @param sample
+	 * @param desired
+	 * @param offset
+	 */
+	public void setDesiredOutput(int sample, float[] desired, int offset) {
+		int size = layerSizes[layerSizes.length - 1];
+		System.arraycopy(desired, offset, desiredOutputs, checkSample(sample) * size, size);
+	}
+
+	/**
+	 * Copy the inputs and desired outputs of several samples
+	 * into the workspace. Both arrays hold the values sample
+	 * after sample.
+	 * @param inputs
+	 * @param desired
+	 * @param count number of samples
+	 */
+	public void setSamples(float[] inputs, float[] desired, int count) {
+		checkSample(count - 1);
+		sparseInputs = false;
+		System.arraycopy(inputs, 0, outputs[0], 0, count * layerSizes[0]);
+		System.arraycopy(desired, 0, desiredOutputs, 0, count * layerSizes[layerSizes.length - 1]);
+	}
+
+	/**
+	 * Copy the calculated outputs of a single sample
+	 * into the given array
+	 * @param sample
+	 * @param result
+	 */
+	public void getOutput(int sample, float[] result) {
+		int size = layerSizes[layerSizes.length - 1];
+		System.arraycopy(outputs[layerSizes.length - 1], checkSample(sample) * size, result, 0, size);
+	}
+
+	/**
+	 * Returns the values of the given layer for all samples
+	 * calculated during the last forward pass.
+	 * @param layer
+	 * @return
+	 */
+	public float[] getOutputs(int layer) {
+		return this.outputs[layer];
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	private int checkSample(int sample) {
+		if(sample < capacity)
+			return sample;
+		else
+			throw new RuntimeException(sample + " is out of Range, workspace capacity is : " + capacity);
+	}
+}
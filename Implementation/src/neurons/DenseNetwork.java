@@ -0,0 +1,794 @@
+package neurons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+
+import maths.Activation;
+import maths.ActivationFunction;
+import maths.Kernels;
+import maths.WeightInitializer;
+import metrics.TrainingMetrics;
+import optimizers.Optimizer;
+import optimizers.SgdOptimizer;
+import persistence.WeightSnapshot;
+
+/**
+ * This is a dense (matrix based) representation of the
+ * feedforward neural network.
+ *
+ * Instead of keeping a graph of perceptron objects, the weights
+ * of each layer are kept in a single contiguous row-major array
+ * where row j holds the input weights of the jth perceptron, i.e.
+ * <pre>
+ * weights[k][j * prevLayerSize + i]
+ * </pre>
+ * is the weight from perceptron i of layer k-1 to perceptron j of
+ * layer k. Layer 0 is the input layer and has no weights.
+ * Each perceptron also has a trained bias which is added to
+ * its weighted sum, and each layer has its own activation
+ * function (sigmoid unless set otherwise).
+ *
+ * Training works on batches of samples. The outputs, weighted sums
+ * and delta values of each layer for a batch are kept in a
+ * BatchWorkspace and the weight changes are accumulated in a
+ * Gradients object, so the forward pass, the backward pass and the
+ * weight update are simple matrix loops over primitive arrays.
+ * Training with a single input is a batch of one sample.
+ *
+ * In BOOLEAN signal mode outputs are thresholded to 0/1 and the
+ * delta values are passed back unchanged, as in the original
+ * algorithm. In CONTINUOUS signal mode the activations are
+ * passed on and the delta values are multiplied by the derivative
+ * of each perceptron before they are passed back.
+ *
+ * The accumulated changes are applied by an Optimizer, which
+ * is plain gradient descent unless set otherwise.
+ *
+ * While a TrainingMetrics object is attached, the time spent
+ * on each layer and the size of each update are recorded.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class DenseNetwork {
+
+	/**
+	 * Number of samples for which a row of weights is
+	 * reused while it is still in the cache
+	 */
+	private static final int SAMPLE_BLOCK_SIZE = 8;
+
+	/**
+	 * Dot product and axpy loops (scalar or SIMD)
+	 */
+	private static final Kernels KERNELS = Kernels.get();
+
+	/**
+	 * Minimum number of weights for which layers
+	 * are initialized by several threads
+	 */
+	private static final int PARALLEL_INIT_THRESHOLD = 1 << 16;
+
+	/**
+	 * Number of perceptrons in each layer,
+	 * including the input and the output layer
+	 */
+	private final int[] layerSizes;
+
+	/**
+	 * Row-major weight matrix for each layer
+	 * (weights[0] is not used)
+	 */
+	private final float[][] weights;
+
+	/**
+	 * Bias and activation function of each layer
+	 * (index 0 is not used)
+	 */
+	private final float[][] biases;
+	private final Activation[] activations;
+
+	/**
+	 * Scratch space used when this network
+	 * trains itself
+	 */
+	private BatchWorkspace workspace;
+	private Gradients gradients;
+
+	/**
+	 * Basic settings helpful when training
+	 * the neural network
+	 */
+	private float learningRate;
+	private float threshold;
+	private final SignalMode signalMode;
+
+	/**
+	 * Applies the weight and bias changes
+	 */
+	private Optimizer optimizer = new SgdOptimizer();
+
+	/**
+	 * Records training metrics when set
+	 */
+	private TrainingMetrics metrics;
+
+	/**
+	 * Creates a dense network with boolean signals and
+	 * all weights set to zero.
+	 * @param layerSizes sizes of each layer starting from the input layer
+	 * @param learningRate
+	 * @param threshold
+	 */
+	public DenseNetwork(int[] layerSizes, float learningRate, float threshold) {
+		this(layerSizes, learningRate, threshold, SignalMode.BOOLEAN);
+	}
+
+	/**
+	 * Creates a dense network with all weights set to zero.
+	 * @param layerSizes sizes of each layer starting from the input layer
+	 * @param learningRate
+	 * @param threshold only used in BOOLEAN signal mode
+	 * @param signalMode
+	 */
+	public DenseNetwork(int[] layerSizes, float learningRate, float threshold, SignalMode signalMode) {
+
+		if(layerSizes.length < 2)
+			throw new RuntimeException("A neural network needs at least an input and an output layer");
+
+		this.layerSizes = layerSizes.clone();
+		this.learningRate = learningRate;
+		this.threshold = threshold;
+		this.signalMode = signalMode;
+
+		this.weights = new float[layerSizes.length][];
+		this.biases = new float[layerSizes.length][];
+		this.activations = new Activation[layerSizes.length];
+		for(int k = 1; k < layerSizes.length; k++) {
+			this.weights[k] = new float[layerSizes[k] * layerSizes[k-1]];
+			this.biases[k] = new float[layerSizes[k]];
+			this.activations[k] = ActivationFunction.SIGMOID;
+		}
+		this.gradients = new Gradients(layerSizes);
+	}
+
+	/**
+	 * This is the backpropagation algorithm for a single
+	 * input versus its desired output.
+	 * @param inputs
+	 * @param desiredOutputs
+	 */
+	public void trainForSingleInput(float[] inputs, float[] desiredOutputs) {
+
+		BatchWorkspace ws = getWorkspace(1);
+		ws.setInput(0, inputs);
+		ws.setDesiredOutput(0, desiredOutputs);
+		trainWorkspace(ws, 1);
+	}
+
+	/**
+	 * Trains the network with a mini-batch of samples.
+	 * The weight changes of every sample in the batch are
+	 * accumulated and the weights are updated once, using the
+	 * average change scaled by the learning rate.
+	 * Samples are taken from the given position onwards,
+	 * wrapping around at the end of the arrays.
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @param first index of the first sample of the batch
+	 * @param count number of samples in the batch
+	 */
+	public void trainBatch(float[][] inputVectors, float[][] desiredOutputVectors, int first, int count) {
+
+		BatchWorkspace ws = getWorkspace(count);
+		for(int b = 0; b < count; b++) {
+			ws.setInput(b, inputVectors[(first + b) % inputVectors.length]);
+			ws.setDesiredOutput(b, desiredOutputVectors[(first + b) % desiredOutputVectors.length]);
+		}
+		trainWorkspace(ws, count);
+	}
+
+	/**
+	 * Trains the network with a mini-batch of samples whose
+	 * inputs and desired outputs are kept sample after sample
+	 * in flat arrays.
+	 * @param inputs
+	 * @param desiredOutputs
+	 * @param count number of samples in the batch
+	 */
+	public void trainBatch(float[] inputs, float[] desiredOutputs, int count) {
+
+		BatchWorkspace ws = getWorkspace(count);
+		ws.setSamples(inputs, desiredOutputs, count);
+		trainWorkspace(ws, count);
+	}
+
+	/**
+	 * Trains the network with a mini-batch of samples whose
+	 * inputs are given in sparse form; only the weights of the
+	 * non-zero inputs of each sample are used and changed in
+	 * the first layer.
+	 * @param inputs
+	 * @param desiredOutputs desired outputs kept sample after sample
+	 */
+	public void trainBatch(SparseBatch inputs, float[] desiredOutputs) {
+
+		int count = inputs.getRowCount();
+		BatchWorkspace ws = getWorkspace(count);
+		ws.setSparseInputs(inputs);
+		for(int b = 0; b < count; b++) {
+			ws.setDesiredOutput(b, desiredOutputs, b * layerSizes[layerSizes.length - 1]);
+		}
+		trainWorkspace(ws, count);
+	}
+
+	private void trainWorkspace(BatchWorkspace ws, int count) {
+		gradients.clear();
+		forwardPass(ws, count);
+		backwardPass(ws, count, gradients);
+		applyGradients(gradients, count);
+	}
+
+	/**
+	 * Returns the workspace of this network making
+	 * sure that it can hold the given number of samples
+	 * @param count
+	 * @return
+	 */
+	private BatchWorkspace getWorkspace(int count) {
+		if(workspace == null || workspace.getCapacity() < count)
+			workspace = createWorkspace(count);
+		return workspace;
+	}
+
+	/**
+	 * Creates a workspace suitable for this network
+	 * @param capacity maximum number of samples in a batch
+	 * @return
+	 */
+	public BatchWorkspace createWorkspace(int capacity) {
+		return new BatchWorkspace(layerSizes, capacity);
+	}
+
+	/**
+	 * Creates an empty gradients object suitable for this network
+	 * @return
+	 */
+	public Gradients createGradients() {
+		return new Gradients(layerSizes);
+	}
+
+	/**
+	 * Calculates the outputs of every layer for the first
+	 * count samples found in the input layer of the workspace.
+	 *
+	 * This is a blocked matrix-matrix product; each row of
+	 * weights is used for a block of samples before moving
+	 * to the next row. The activation function and its derivative
+	 * are then calculated for each sample in the block, the
+	 * derivative from the cached outputs before they are
+	 * thresholded in BOOLEAN signal mode.
+	 *
+	 * When the workspace holds sparse inputs the first layer
+	 * only reads the weights of the non-zero inputs.
+	 * @param ws
+	 * @param count
+	 */
+	public void forwardPass(BatchWorkspace ws, int count) {
+
+		TrainingMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0L;
+
+		int firstDenseLayer = 1;
+		if(ws.sparseInputs) {
+			if(ws.sparseBatch.getRowCount() < count)
+				throw new RuntimeException("The workspace holds the inputs of only "
+						+ ws.sparseBatch.getRowCount() + " samples");
+			sparseWeightedSums(ws.sparseBatch, ws.weightedSums[1], count);
+			activate(1, ws, 0, count);
+			firstDenseLayer = 2;
+			if(metrics != null)
+				start = recordForward(metrics, 1, start);
+		}
+
+		for(int k = firstDenseLayer; k < layerSizes.length; k++) {
+			float[] w = weights[k];
+			float[] bias = biases[k];
+			float[] in = ws.outputs[k-1];
+			float[] sums = ws.weightedSums[k];
+			int prevLayerSize = layerSizes[k-1];
+			int currLayerSize = layerSizes[k];
+
+			for(int blockStart = 0; blockStart < count; blockStart += SAMPLE_BLOCK_SIZE) {
+				int blockEnd = Math.min(blockStart + SAMPLE_BLOCK_SIZE, count);
+
+				for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+					for(int b = blockStart; b < blockEnd; b++) {
+						int inOffset = b * prevLayerSize;
+						sums[b * currLayerSize + j] = bias[j] + KERNELS.dot(w, row, in, inOffset, prevLayerSize);
+					}
+				}
+
+				activate(k, ws, blockStart, blockEnd);
+			}
+			if(metrics != null)
+				start = recordForward(metrics, k, start);
+		}
+	}
+
+	private static long recordForward(TrainingMetrics metrics, int k, long start) {
+		long now = System.nanoTime();
+		metrics.recordForward(k, now - start);
+		return now;
+	}
+
+	private static long recordBackward(TrainingMetrics metrics, int k, long start) {
+		long now = System.nanoTime();
+		metrics.recordBackward(k, now - start);
+		return now;
+	}
+
+	/**
+	 * Calculates the outputs and the derivatives of layer k from
+	 * its weighted sums for the samples in [from, to), and
+	 * thresholds the outputs in BOOLEAN signal mode
+	 */
+	private void activate(int k, BatchWorkspace ws, int from, int to) {
+
+		Activation activation = activations[k];
+		float[] sums = ws.weightedSums[k];
+		float[] out = ws.outputs[k];
+		float[] derivatives = ws.derivatives[k];
+		int currLayerSize = layerSizes[k];
+
+		int blockOffset = from * currLayerSize;
+		int blockLength = (to - from) * currLayerSize;
+		for(int offset = blockOffset; offset < blockOffset + blockLength; offset += currLayerSize) {
+			activation.apply(sums, out, offset, currLayerSize);
+			activation.derivative(sums, out, derivatives, offset, currLayerSize);
+		}
+		if(signalMode == SignalMode.BOOLEAN) {
+			for(int index = blockOffset; index < blockOffset + blockLength; index++) {
+				out[index] = out[index] < threshold ? 0.0f : 1.0f;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the weighted sums of the first layer for
+	 * sparse inputs; only the weights of the non-zero inputs
+	 * are read. Binary inputs need no multiplication.
+	 */
+	private void sparseWeightedSums(SparseBatch in, float[] sums, int count) {
+
+		float[] w = weights[1];
+		float[] bias = biases[1];
+		int[] indices = in.indices;
+		float[] values = in.values;
+		boolean binary = in.binary;
+		int inputSize = layerSizes[0];
+		int currLayerSize = layerSizes[1];
+
+		for(int b = 0; b < count; b++) {
+			int start = in.rowStarts[b];
+			int end = in.rowStarts[b + 1];
+			int offset = b * currLayerSize;
+			for(int j = 0, row = 0; j < currLayerSize; j++, row += inputSize) {
+				float sum = bias[j];
+				if(binary) {
+					for(int t = start; t < end; t++) {
+						sum += w[row + indices[t]];
+					}
+				}
+				else {
+					for(int t = start; t < end; t++) {
+						sum += w[row + indices[t]] * values[t];
+					}
+				}
+				sums[offset + j] = sum;
+			}
+		}
+	}
+
+	/**
+	 * Adds the loss of the first count samples of the workspace
+	 * to the given gradients without calculating any changes.
+	 * The forward pass must have been done for the same samples.
+	 * @param ws
+	 * @param count
+	 * @param totals
+	 */
+	public void measureLoss(BatchWorkspace ws, int count, Gradients totals) {
+		outputErrors(ws, count, totals, null);
+	}
+
+	/**
+	 * Calculates (desired output - actual output) of the output
+	 * layer and adds the loss of each sample to the totals.
+	 * The differences are stored in the given array unless it is null.
+	 */
+	private void outputErrors(BatchWorkspace ws, int count, Gradients totals, float[] differences) {
+
+		int outputLayerSize = layerSizes[layerSizes.length - 1];
+		float[] actualOutputs = ws.outputs[layerSizes.length - 1];
+		double loss = 0.0;
+		int errorCount = 0;
+		for(int b = 0, index = 0; b < count; b++) {
+			boolean wrong = false;
+			for(int j = 0; j < outputLayerSize; j++, index++) {
+				float difference = ws.desiredOutputs[index] - actualOutputs[index];
+				if(differences != null)
+					differences[index] = difference;
+				loss += difference * difference;
+				wrong |= Math.abs(difference) >= 0.5f;
+			}
+			if(wrong)
+				errorCount++;
+		}
+		totals.loss += 0.5 * loss;
+		totals.errorCount += errorCount;
+		totals.sampleCount += count;
+	}
+
+	/**
+	 * Calculates the delta values of every layer for the first
+	 * count samples of the workspace and adds the resulting
+	 * weight and bias changes, and the loss of the samples,
+	 * to the given gradients.
+	 * The forward pass must have been done for the same samples.
+	 * @param ws
+	 * @param count
+	 * @param gradients
+	 */
+	public void backwardPass(BatchWorkspace ws, int count, Gradients gradients) {
+
+		// delta values of the output layer are based on
+		// (desired output - actual output)
+		TrainingMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0L;
+
+		int outputLayer = layerSizes.length - 1;
+		outputErrors(ws, count, gradients, ws.deltas[outputLayer]);
+
+		// propagate the delta values back to each hidden layer;
+		// each row of the next layer is added to the delta vector
+		// scaled by its delta, so the weights are read in memory order.
+		boolean continuous = signalMode == SignalMode.CONTINUOUS;
+		for(int k = outputLayer; k > 0; k--) {
+			float[] currDeltas = ws.deltas[k];
+			float[] derivatives = ws.derivatives[k];
+			int currLayerSize = layerSizes[k];
+
+			// in continuous mode the derivative is part of the delta value
+			if(continuous) {
+				for(int index = 0; index < count * currLayerSize; index++) {
+					currDeltas[index] *= derivatives[index];
+				}
+			}
+
+			// the input layer does not need delta values
+			if(k == 1) {
+				if(metrics != null)
+					start = recordBackward(metrics, k, start);
+				break;
+			}
+
+			float[] w = weights[k];
+			float[] prevDeltas = ws.deltas[k-1];
+			int prevLayerSize = layerSizes[k-1];
+
+			Arrays.fill(prevDeltas, 0, count * prevLayerSize, 0.0f);
+			for(int b = 0; b < count; b++) {
+				int prevOffset = b * prevLayerSize;
+				int currOffset = b * currLayerSize;
+				for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+					KERNELS.axpy(currDeltas[currOffset + j], w, row, prevDeltas, prevOffset, prevLayerSize);
+				}
+			}
+			if(metrics != null)
+				start = recordBackward(metrics, k, start);
+		}
+
+		// accumulate the weight and bias changes based on the
+		// delta values and the outputs of the previous layer
+		for(int k = 1; k < layerSizes.length; k++) {
+			float[] g = gradients.weights[k];
+			float[] gBias = gradients.biases[k];
+			float[] in = ws.outputs[k-1];
+			float[] derivatives = ws.derivatives[k];
+			float[] currDeltas = ws.deltas[k];
+			int prevLayerSize = layerSizes[k-1];
+			int currLayerSize = layerSizes[k];
+
+			// with sparse inputs only the columns of
+			// the non-zero inputs of the first layer change
+			boolean sparse = k == 1 && ws.sparseInputs;
+			boolean binary = ws.sparseBatch.binary;
+			int[] rowStarts = ws.sparseBatch.rowStarts;
+			int[] indices = ws.sparseBatch.indices;
+			float[] values = ws.sparseBatch.values;
+
+			for(int j = 0, row = 0; j < currLayerSize; j++, row += prevLayerSize) {
+				for(int b = 0; b < count; b++) {
+					int index = b * currLayerSize + j;
+					float step = continuous ? currDeltas[index]
+							: currDeltas[index] * derivatives[index];
+					gBias[j] += step;
+					if(sparse && binary) {
+						for(int t = rowStarts[b]; t < rowStarts[b + 1]; t++) {
+							g[row + indices[t]] += step;
+						}
+					}
+					else if(sparse) {
+						for(int t = rowStarts[b]; t < rowStarts[b + 1]; t++) {
+							g[row + indices[t]] += step * values[t];
+						}
+					}
+					else {
+						KERNELS.axpy(step, in, b * prevLayerSize, g, row, prevLayerSize);
+					}
+				}
+			}
+			if(metrics != null)
+				start = recordBackward(metrics, k, start);
+		}
+	}
+
+	/**
+	 * Applies the accumulated weight and bias changes to
+	 * the weights and biases using the optimizer of this
+	 * network and the current learning rate.
+	 * The weights of layer k use optimizer slot 2k and
+	 * its biases use slot 2k+1.
+	 * @param gradients
+	 * @param sampleCount number of samples the changes were accumulated over
+	 */
+	public void applyGradients(Gradients gradients, int sampleCount) {
+
+		TrainingMetrics metrics = this.metrics;
+		if(metrics != null) {
+			applyGradients(gradients, sampleCount, metrics);
+			return;
+		}
+
+		for(int k = 1; k < layerSizes.length; k++) {
+			optimizer.update(2 * k, weights[k], gradients.weights[k], learningRate, sampleCount);
+			optimizer.update(2 * k + 1, biases[k], gradients.biases[k], learningRate, sampleCount);
+		}
+	}
+
+	/**
+	 * Applies the changes while recording the time spent and,
+	 * every few updates, the norm of the average changes and the
+	 * norm of the actual change of the weights of each layer
+	 */
+	private void applyGradients(Gradients gradients, int sampleCount, TrainingMetrics metrics) {
+
+		boolean measureNorms = metrics.isNormDue();
+		for(int k = 1; k < layerSizes.length; k++) {
+			float[] w = weights[k];
+			float[] previous = null;
+			if(measureNorms) {
+				previous = metrics.getWeightBuffer(k, w.length);
+				System.arraycopy(w, 0, previous, 0, w.length);
+			}
+
+			long start = System.nanoTime();
+			optimizer.update(2 * k, w, gradients.weights[k], learningRate, sampleCount);
+			optimizer.update(2 * k + 1, biases[k], gradients.biases[k], learningRate, sampleCount);
+			metrics.recordUpdate(k, System.nanoTime() - start);
+
+			if(!measureNorms)
+				continue;
+
+			double gradientSquares = sumOfSquares(gradients.weights[k]) + sumOfSquares(gradients.biases[k]);
+			metrics.recordGradientNorm(k, Math.sqrt(gradientSquares) / Math.max(sampleCount, 1));
+
+			double updateSquares = 0.0;
+			for(int i = 0; i < w.length; i++) {
+				double change = w[i] - previous[i];
+				updateSquares += change * change;
+			}
+			metrics.recordUpdateMagnitude(k, Math.sqrt(updateSquares));
+		}
+		metrics.recordStep(sampleCount, gradients.loss, gradients.errorCount);
+	}
+
+	private static double sumOfSquares(float[] values) {
+		double sum = 0.0;
+		for(int i = 0; i < values.length; i++) {
+			sum += values[i] * values[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the row-major weight matrix of the given layer.
+	 * Note that the returned array is the live weight matrix.
+	 * @param layer
+	 * @return
+	 */
+	public float[] getWeights(int layer) {
+		if(layer > 0 && layer < layerSizes.length)
+			return this.weights[layer];
+		else
+			throw new RuntimeException(layer + " is out of Range, layer count is : " + layerSizes.length);
+	}
+
+	/**
+	 * Returns the biases of the given layer.
+	 * Note that the returned array is the live bias vector.
+	 * @param layer
+	 * @return
+	 */
+	public float[] getBiases(int layer) {
+		if(layer > 0 && layer < layerSizes.length)
+			return this.biases[layer];
+		else
+			throw new RuntimeException(layer + " is out of Range, layer count is : " + layerSizes.length);
+	}
+
+	/**
+	 * Set the activation function of the given layer
+	 * @param layer
+	 * @param activation
+	 */
+	public void setActivation(int layer, Activation activation) {
+		if(layer > 0 && layer < layerSizes.length)
+			this.activations[layer] = activation;
+		else
+			throw new RuntimeException(layer + " is out of Range, layer count is : " + layerSizes.length);
+	}
+
+	public Activation getActivation(int layer) {
+		return this.activations[layer];
+	}
+
+	/**
+	 * Draw new weights for every layer and set the biases to zero
+	 * @param initializer
+	 * @param seed the same seed always gives the same weights
+	 */
+	public void initializeWeights(WeightInitializer initializer, long seed) {
+		initializeWeights(initializer, seed, 1, layerSizes.length);
+	}
+
+	/**
+	 * Draw new weights for the layers in [fromLayer, toLayer)
+	 * and set their biases to zero.
+	 *
+	 * Each layer draws from its own random stream split off
+	 * a generator seeded with the given seed, so the weights
+	 * of a layer only depend on the seed and the position of
+	 * the layer. Layers can therefore be filled by several
+	 * threads, which is done when there are many weights.
+	 * @param initializer
+	 * @param seed
+	 * @param fromLayer
+	 * @param toLayer
+	 */
+	public void initializeWeights(final WeightInitializer initializer, long seed, int fromLayer, int toLayer) {
+
+		if(fromLayer < 1 || toLayer > layerSizes.length || fromLayer > toLayer)
+			throw new RuntimeException("[" + fromLayer + ", " + toLayer + ") is out of Range, layer count is : " + layerSizes.length);
+
+		SplittableRandom root = new SplittableRandom(seed);
+		final SplittableRandom[] randoms = new SplittableRandom[toLayer];
+		long weightCount = 0;
+		for(int k = 1; k < toLayer; k++) {
+			randoms[k] = root.split();
+			if(k >= fromLayer)
+				weightCount += weights[k].length;
+		}
+
+		if(toLayer - fromLayer > 1 && weightCount >= PARALLEL_INIT_THRESHOLD) {
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for(int k = fromLayer; k < toLayer; k++) {
+				final int layer = k;
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						initializeLayer(layer, initializer, randoms[layer]);
+					}
+				}));
+			}
+			ForkJoinTask.invokeAll(tasks);
+		}
+		else {
+			for(int k = fromLayer; k < toLayer; k++) {
+				initializeLayer(k, initializer, randoms[k]);
+			}
+		}
+	}
+
+	private void initializeLayer(int k, WeightInitializer initializer, SplittableRandom random) {
+		initializer.initialize(weights[k], layerSizes[k-1], layerSizes[k], random);
+		Arrays.fill(biases[k], 0.0f);
+	}
+
+	/**
+	 * Take a copy of the current weights and biases
+	 * @param iteration the training iteration the weights belong to
+	 * @return
+	 */
+	public WeightSnapshot takeSnapshot(long iteration) {
+		return WeightSnapshot.copyOf(iteration, layerSizes, weights, biases);
+	}
+
+	public float getWeight(int layer, int perceptron, int input) {
+		return getWeights(layer)[perceptron * layerSizes[layer-1] + input];
+	}
+
+	public void setWeight(int layer, int perceptron, int input, float weight) {
+		getWeights(layer)[perceptron * layerSizes[layer-1] + input] = weight;
+	}
+
+	public int getLayerCount() {
+		return this.layerSizes.length;
+	}
+
+	public int[] getLayerSizes() {
+		return this.layerSizes.clone();
+	}
+
+	public int getLayerSize(int layer) {
+		return this.layerSizes[layer];
+	}
+
+	public float getLearningRate() {
+		return this.learningRate;
+	}
+
+	public void setLearningRate(float learningRate) {
+		this.learningRate = learningRate;
+	}
+
+	/**
+	 * Use the given optimizer to apply weight changes from
+	 * now on. An optimizer keeps state for a single network.
+	 * @param optimizer
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+	}
+
+	public Optimizer getOptimizer() {
+		return this.optimizer;
+	}
+
+	/**
+	 * Record training metrics into the given object from now
+	 * on, or stop recording them when it is null
+	 * @param metrics
+	 */
+	public void setMetrics(TrainingMetrics metrics) {
+		if(metrics != null && metrics.getLayerCount() != layerSizes.length)
+			throw new RuntimeException("Expected metrics for " + layerSizes.length 
+					+ " layers but got " + metrics.getLayerCount());
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Start recording training metrics into a new object
+	 * @return
+	 */
+	public TrainingMetrics enableMetrics() {
+		TrainingMetrics metrics = new TrainingMetrics(layerSizes.length);
+		setMetrics(metrics);
+		return metrics;
+	}
+
+	public TrainingMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	public float getThreshold() {
+		return this.threshold;
+	}
+
+	public SignalMode getSignalMode() {
+		return this.signalMode;
+	}
+}
@@ -0,0 +1,150 @@
+package neurons;
+
+import java.util.Arrays;
+
+/**
+ * This class accumulates the weight and bias changes calculated
+ * by the backward pass for a batch of samples before
+ * they are applied to a dense network, together with the
+ * loss of those samples.
+ *
+ * The layout of each layer is the same row-major layout
+ * used for the weights of the dense network.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class Gradients {
+
+	/**
+	 * Accumulated weight changes of each layer
+	 * (weights[0] is not used)
+	 */
+	final float[][] weights;
+
+	/**
+	 * Accumulated bias changes of each layer
+	 * (biases[0] is not used)
+	 */
+	final float[][] biases;
+
+	/**
+	 * Sum of half the squared errors of the output layer
+	 */
+	double loss;
+
+	/**
+	 * Number of samples with at least one output
+	 * which is 0.5 or more away from the desired output
+	 */
+	int errorCount;
+
+	/**
+	 * Number of samples whose loss was accumulated
+	 */
+	int sampleCount;
+
+	public Gradients(int[] layerSizes) {
+		this.weights = new float[layerSizes.length][];
+		this.biases = new float[layerSizes.length][];
+		for(int k = 1; k < layerSizes.length; k++) {
+			this.weights[k] = new float[layerSizes[k] * layerSizes[k-1]];
+			this.biases[k] = new float[layerSizes[k]];
+		}
+	}
+
+	/**
+	 * Reset all accumulated values to zero
+	 */
+	public void clear() {
+		for(int k = 1; k < weights.length; k++) {
+			Arrays.fill(weights[k], 0.0f);
+			Arrays.fill(biases[k], 0.0f);
+		}
+		clearLoss();
+	}
+
+	/**
+	 * Reset only the accumulated loss to zero
+	 */
+	public void clearLoss() {
+		this.loss = 0.0;
+		this.errorCount = 0;
+		this.sampleCount = 0;
+	}
+
+	/**
+	 * Add the values accumulated in another gradients
+	 * object to this one.
+	 * @param other
+	 */
+	public void add(Gradients other) {
+		for(int k = 1; k < weights.length; k++) {
+			float[] dst = this.weights[k];
+			float[] src = other.weights[k];
+			for(int i = 0; i < dst.length; i++) {
+				dst[i] += src[i];
+			}
+
+			float[] dstBias = this.biases[k];
+			float[] srcBias = other.biases[k];
+			for(int j = 0; j < dstBias.length; j++) {
+				dstBias[j] += srcBias[j];
+			}
+		}
+		this.loss += other.loss;
+		this.errorCount += other.errorCount;
+		this.sampleCount += other.sampleCount;
+	}
+
+	/**
+	 * Add only the loss accumulated in another
+	 * gradients object to this one.
+	 * @param other
+	 */
+	public void addLoss(Gradients other) {
+		this.loss += other.loss;
+		this.errorCount += other.errorCount;
+		this.sampleCount += other.sampleCount;
+	}
+
+	/**
+	 * Add a loss accumulated elsewhere, e.g. by other
+	 * processes, to this one.
+	 * @param loss
+	 * @param errorCount
+	 * @param sampleCount
+	 */
+	public void addLoss(double loss, int errorCount, int sampleCount) {
+		this.loss += loss;
+		this.errorCount += errorCount;
+		this.sampleCount += sampleCount;
+	}
+
+	public float[] getWeightGradients(int layer) {
+		return this.weights[layer];
+	}
+
+	public float[] getBiasGradients(int layer) {
+		return this.biases[layer];
+	}
+
+	public double getLoss() {
+		return this.loss;
+	}
+
+	/**
+	 * Returns the loss per sample
+	 * @return
+	 */
+	public double getMeanLoss() {
+		return sampleCount == 0 ? 0.0 : loss / sampleCount;
+	}
+
+	public int getErrorCount() {
+		return this.errorCount;
+	}
+
+	public int getSampleCount() {
+		return this.sampleCount;
+	}
+}
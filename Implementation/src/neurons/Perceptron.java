@@ -105,8 +105,8 @@ public class Perceptron {
 	
 	public void calculateOutput() {
 		
-		//obtain the weighted sum
-		float sum = 0.0f;
+		//obtain the weighted sum starting from the bias
+		float sum = this.bias;
 		for(int i = 0; i < inputSize; i++) {
 			sum += weights[i] * MathUtils.booleanToFloat(inputs[i]);
 		}
@@ -0,0 +1,20 @@
+package neurons;
+
+/**
+ * This enumeration decides what kind of signals
+ * travel between the layers of a neural network.
+ *
+ * BOOLEAN is the classic mode where the output of each
+ * perceptron is 1 if its sigmoid reaches the threshold
+ * and 0 otherwise.
+ *
+ * CONTINUOUS passes the sigmoid outputs themselves to the
+ * next layer, which lets the backpropagation use the real
+ * gradient and usually needs far fewer iterations.
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum SignalMode {
+	BOOLEAN,
+	CONTINUOUS;
+}
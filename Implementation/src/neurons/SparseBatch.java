@@ -0,0 +1,185 @@
+package neurons;
+
+import java.util.Arrays;
+
+import maths.SparseVector;
+
+/**
+ * This class holds the inputs of a batch of samples in
+ * compressed sparse row (CSR) form; only the positions and
+ * the values of the inputs which are not zero are kept,
+ * sample after sample. The inputs of sample b are at positions
+ * [rowStarts[b], rowStarts[b+1]) of the indices and values arrays.
+ *
+ * Binary inputs (exactly 0 or 1) only need their indices, so
+ * while every sample of the batch is binary the values are
+ * not kept and the kernels do not multiply by them.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SparseBatch {
+
+	private final int inputSize;
+
+	final int[] rowStarts;
+	int[] indices;
+	float[] values;
+	int rowCount;
+
+	/**
+	 * Whether every input added so far is 1 (values is not used)
+	 */
+	boolean binary = true;
+
+	/**
+	 * @param inputSize number of inputs of each sample
+	 * @param capacity maximum number of samples
+	 */
+	public SparseBatch(int inputSize, int capacity) {
+		this.inputSize = inputSize;
+		this.rowStarts = new int[capacity + 1];
+		this.indices = new int[Math.max(16, capacity * 8)];
+	}
+
+	/**
+	 * Remove all samples
+	 */
+	public void clear() {
+		this.rowCount = 0;
+		this.binary = true;
+	}
+
+	/**
+	 * Add a sample of binary inputs packed into 64 bit words
+	 * (see MathUtils.packBits); every set bit is an input of 1.
+	 * @param bits
+	 * @param wordOffset index of the first word of the sample
+	 */
+	public void addPackedRow(long[] bits, int wordOffset) {
+
+		int start = startRow();
+		int words = (inputSize + 63) >>> 6;
+		int end = start;
+		for(int w = 0; w < words; w++) {
+			long word = bits[wordOffset + w];
+			if(word == 0L)
+				continue;
+
+			ensureCapacity(end + Long.bitCount(word));
+			while(word != 0L) {
+				int index = (w << 6) + Long.numberOfTrailingZeros(word);
+				if(index >= inputSize)
+					throw new RuntimeException("Bit " + index + " is out of Range, input size is : " + inputSize);
+				indices[end] = index;
+				if(!binary)
+					values[end] = 1.0f;
+				end++;
+				// clear the lowest set bit
+				word &= word - 1;
+			}
+		}
+		rowStarts[++rowCount] = end;
+	}
+
+	/**
+	 * Add a sample given by the positions and the values of
+	 * its non-zero inputs
+	 * @param inputIndices
+	 * @param inputValues
+	 * @param offset position of the first input in both arrays
+	 * @param count number of non-zero inputs
+	 */
+	public void addRow(int[] inputIndices, float[] inputValues, int offset, int count) {
+
+		int start = startRow();
+		ensureCapacity(start + count);
+		if(binary)
+			useValues();
+
+		for(int t = 0; t < count; t++) {
+			int index = inputIndices[offset + t];
+			if(index < 0 || index >= inputSize)
+				throw new RuntimeException(index + " is out of Range, input size is : " + inputSize);
+			indices[start + t] = index;
+			values[start + t] = inputValues[offset + t];
+		}
+		rowStarts[++rowCount] = start + count;
+	}
+
+	public void addRow(SparseVector vector) {
+		if(vector.getSize() != inputSize)
+			throw new RuntimeException("Expected " + inputSize + " inputs but got " + vector.getSize());
+		addRow(vector.getIndices(), vector.getValues(), 0, vector.getNonZeroCount());
+	}
+
+	/**
+	 * Replace the samples of this batch by the samples of another one
+	 * @param other
+	 */
+	public void copyFrom(SparseBatch other) {
+
+		if(other.inputSize != inputSize || other.rowCount >= rowStarts.length)
+			throw new RuntimeException("The sparse batch does not fit");
+
+		int nonZeros = other.getNonZeroCount();
+		ensureCapacity(nonZeros);
+		System.arraycopy(other.rowStarts, 0, rowStarts, 0, other.rowCount + 1);
+		System.arraycopy(other.indices, 0, indices, 0, nonZeros);
+		this.binary = other.binary;
+		if(!binary) {
+			if(values == null || values.length < indices.length)
+				values = new float[indices.length];
+			System.arraycopy(other.values, 0, values, 0, nonZeros);
+		}
+		this.rowCount = other.rowCount;
+	}
+
+	/**
+	 * Start keeping values, which are 1 for the inputs added so far
+	 */
+	private void useValues() {
+		if(values == null || values.length < indices.length)
+			values = new float[indices.length];
+		Arrays.fill(values, 0, rowStarts[rowCount], 1.0f);
+		binary = false;
+	}
+
+	private int startRow() {
+		if(rowCount + 1 >= rowStarts.length)
+			throw new RuntimeException("The sparse batch is full, capacity is : " + (rowStarts.length - 1));
+		return rowStarts[rowCount];
+	}
+
+	private void ensureCapacity(int length) {
+		if(length > indices.length) {
+			int capacity = Math.max(length, 2 * indices.length);
+			indices = Arrays.copyOf(indices, capacity);
+			if(values != null)
+				values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Returns the number of non-zero inputs of all samples
+	 * @return
+	 */
+	public int getNonZeroCount() {
+		return rowStarts[rowCount];
+	}
+
+	public int getInputSize() {
+		return this.inputSize;
+	}
+
+	/**
+	 * Whether every input of the batch is 0 or 1
+	 * @return
+	 */
+	public boolean isBinary() {
+		return this.binary;
+	}
+}
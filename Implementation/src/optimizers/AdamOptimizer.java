@@ -0,0 +1,68 @@
+package optimizers;
+
+/**
+ * Adam keeps decaying averages of both the changes (first
+ * moment) and the squared changes (second moment) of each
+ * parameter;
+ * <pre>
+ * m = beta1 * m + (1 - beta1) * change
+ * v = beta2 * v + (1 - beta2) * change^2
+ * p = p + stepSize * m / (sqrt(v) + epsilon)
+ * </pre>
+ * The bias correction of both averages for step t is folded
+ * into the step size,
+ * learningRate * sqrt(1 - beta2^t) / (1 - beta1^t),
+ * so it costs nothing per parameter.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class AdamOptimizer extends StatefulOptimizer {
+
+	public static final float DEFAULT_BETA1 = 0.9f;
+	public static final float DEFAULT_BETA2 = 0.999f;
+	public static final float DEFAULT_EPSILON = 1e-7f;
+
+	private static final int FIRST_MOMENT = 0;
+	private static final int SECOND_MOMENT = 1;
+
+	private final float beta1;
+	private final float beta2;
+	private final float epsilon;
+
+	public AdamOptimizer() {
+		this(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON);
+	}
+
+	public AdamOptimizer(float beta1, float beta2, float epsilon) {
+		super(2);
+		if(beta1 < 0.0f || beta1 >= 1.0f || beta2 < 0.0f || beta2 >= 1.0f)
+			throw new RuntimeException("Beta values should be in [0, 1) : " + beta1 + ", " + beta2);
+		this.beta1 = beta1;
+		this.beta2 = beta2;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	public void update(int slot, float[] parameters, float[] changes, float learningRate, int sampleCount) {
+
+		float[] m = getState(FIRST_MOMENT, slot, parameters.length);
+		float[] v = getState(SECOND_MOMENT, slot, parameters.length);
+		long t = nextStep(slot);
+
+		float stepSize = (float) (learningRate * Math.sqrt(1.0 - Math.pow(beta2, t)) / (1.0 - Math.pow(beta1, t)));
+		float changeScale = 1.0f / sampleCount;
+		float b1 = this.beta1;
+		float b2 = this.beta2;
+		float oneMinusB1 = 1.0f - b1;
+		float oneMinusB2 = 1.0f - b2;
+
+		for(int i = 0; i < parameters.length; i++) {
+			float change = changeScale * changes[i];
+			float mi = b1 * m[i] + oneMinusB1 * change;
+			float vi = b2 * v[i] + oneMinusB2 * change * change;
+			m[i] = mi;
+			v[i] = vi;
+			parameters[i] += stepSize * mi / ((float) Math.sqrt(vi) + epsilon);
+		}
+	}
+}
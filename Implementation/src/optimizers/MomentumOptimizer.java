@@ -0,0 +1,57 @@
+package optimizers;
+
+/**
+ * Gradient descent with momentum. A velocity is kept for
+ * each parameter which is the decayed sum of the previous
+ * average changes;
+ * <pre>
+ * v = momentum * v + change
+ * p = p + learningRate * v
+ * </pre>
+ * With Nesterov momentum the parameter moves by the change
+ * plus the new velocity scaled by the momentum instead, which
+ * looks ahead to where the velocity is taking it.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class MomentumOptimizer extends StatefulOptimizer {
+
+	private final float momentum;
+	private final boolean nesterov;
+
+	public MomentumOptimizer(float momentum) {
+		this(momentum, false);
+	}
+
+	public MomentumOptimizer(float momentum, boolean nesterov) {
+		super(1);
+		if(momentum < 0.0f || momentum >= 1.0f)
+			throw new RuntimeException("Momentum should be in [0, 1) : " + momentum);
+		this.momentum = momentum;
+		this.nesterov = nesterov;
+	}
+
+	@Override
+	public void update(int slot, float[] parameters, float[] changes, float learningRate, int sampleCount) {
+
+		float[] velocity = getState(0, slot, parameters.length);
+		float changeScale = 1.0f / sampleCount;
+		float mu = this.momentum;
+
+		if(nesterov) {
+			for(int i = 0; i < parameters.length; i++) {
+				float change = changeScale * changes[i];
+				float v = mu * velocity[i] + change;
+				velocity[i] = v;
+				parameters[i] += learningRate * (change + mu * v);
+			}
+		}
+		else {
+			for(int i = 0; i < parameters.length; i++) {
+				float v = mu * velocity[i] + changeScale * changes[i];
+				velocity[i] = v;
+				parameters[i] += learningRate * v;
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package optimizers;
+
+/**
+ * An optimizer decides how the accumulated weight changes
+ * of a batch are applied to the parameters of a network.
+ *
+ * Changes point in the direction that reduces the error
+ * (desired output - actual output), so plain gradient descent
+ * adds them to the parameters.
+ *
+ * Every parameter array of a network (the weights and the
+ * biases of each layer) is identified by a slot number which
+ * stays the same from update to update, so an optimizer can
+ * keep its state for each array in flat arrays of the same
+ * length. An optimizer keeps state for a single network and
+ * should not be shared.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface Optimizer {
+
+	/**
+	 * Update one parameter array with the changes
+	 * accumulated over a batch of samples.
+	 * @param slot identifies the parameter array
+	 * @param parameters the parameters to update in place
+	 * @param changes the changes summed over the batch
+	 * @param learningRate
+	 * @param sampleCount number of samples in the batch
+	 */
+	void update(int slot, float[] parameters, float[] changes, float learningRate, int sampleCount);
+}
@@ -0,0 +1,49 @@
+package optimizers;
+
+/**
+ * RMSProp divides the change of each parameter by the root of
+ * a decaying average of its squared changes, so every parameter
+ * gets its own step size;
+ * <pre>
+ * s = decay * s + (1 - decay) * change^2
+ * p = p + learningRate * change / (sqrt(s) + epsilon)
+ * </pre>
+ * @author wimal perera (09/10008)
+ *
+ */
+public class RmsPropOptimizer extends StatefulOptimizer {
+
+	public static final float DEFAULT_DECAY = 0.9f;
+	public static final float DEFAULT_EPSILON = 1e-7f;
+
+	private final float decay;
+	private final float epsilon;
+
+	public RmsPropOptimizer() {
+		this(DEFAULT_DECAY, DEFAULT_EPSILON);
+	}
+
+	public RmsPropOptimizer(float decay, float epsilon) {
+		super(1);
+		if(decay < 0.0f || decay >= 1.0f)
+			throw new RuntimeException("Decay should be in [0, 1) : " + decay);
+		this.decay = decay;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	public void update(int slot, float[] parameters, float[] changes, float learningRate, int sampleCount) {
+
+		float[] meanSquares = getState(0, slot, parameters.length);
+		float changeScale = 1.0f / sampleCount;
+		float rho = this.decay;
+		float oneMinusRho = 1.0f - rho;
+
+		for(int i = 0; i < parameters.length; i++) {
+			float change = changeScale * changes[i];
+			float s = rho * meanSquares[i] + oneMinusRho * change * change;
+			meanSquares[i] = s;
+			parameters[i] += learningRate * change / ((float) Math.sqrt(s) + epsilon);
+		}
+	}
+}
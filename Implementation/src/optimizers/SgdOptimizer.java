@@ -0,0 +1,18 @@
+package optimizers;
+
+import maths.Kernels;
+
+/**
+ * Plain stochastic gradient descent; the average change
+ * of the batch scaled by the learning rate is added to
+ * each parameter. This is the default optimizer.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SgdOptimizer implements Optimizer {
+
+	@Override
+	public void update(int slot, float[] parameters, float[] changes, float learningRate, int sampleCount) {
+		Kernels.get().axpy(learningRate / sampleCount, changes, 0, parameters, 0, parameters.length);
+	}
+}
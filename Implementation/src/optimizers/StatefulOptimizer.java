@@ -0,0 +1,73 @@
+package optimizers;
+
+import java.util.Arrays;
+
+/**
+ * This is the base of optimizers which keep state, such as
+ * velocities or moment estimates, for every parameter.
+ * The state is kept in flat float arrays parallel to
+ * the parameter arrays and is created on first use.
+ * @author wimal perera (09/10008)
+ *
+ */
+public abstract class StatefulOptimizer implements Optimizer {
+
+	/**
+	 * state[buffer][slot] is the state array for a slot
+	 */
+	private final float[][][] state;
+
+	/**
+	 * Number of updates done for each slot
+	 */
+	private long[] stepCounts = new long[0];
+
+	protected StatefulOptimizer(int bufferCount) {
+		this.state = new float[bufferCount][0][];
+	}
+
+	/**
+	 * Returns the given state array of a slot,
+	 * creating it filled with zeros if needed
+	 * @param buffer
+	 * @param slot
+	 * @param length
+	 * @return
+	 */
+	protected float[] getState(int buffer, int slot, int length) {
+
+		float[][] slots = state[buffer];
+		if(slot >= slots.length) {
+			slots = state[buffer] = Arrays.copyOf(slots, slot + 1);
+		}
+		if(slots[slot] == null) {
+			slots[slot] = new float[length];
+		}
+		else if(slots[slot].length != length) {
+			throw new RuntimeException("Slot " + slot + " was used with a different number of parameters");
+		}
+		return slots[slot];
+	}
+
+	/**
+	 * Count an update of the given slot
+	 * @param slot
+	 * @return the number of updates of the slot including this one
+	 */
+	protected long nextStep(int slot) {
+		if(slot >= stepCounts.length) {
+			stepCounts = Arrays.copyOf(stepCounts, slot + 1);
+		}
+		return ++stepCounts[slot];
+	}
+
+	/**
+	 * Forget all state, as if no update was done
+	 */
+	public void reset() {
+		for(int buffer = 0; buffer < state.length; buffer++) {
+			state[buffer] = new float[0][];
+		}
+		stepCounts = new long[0];
+	}
+}
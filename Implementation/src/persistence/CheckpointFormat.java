@@ -0,0 +1,22 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A checkpoint format decides how a weight snapshot
+ * is written to the checkpoint file.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface CheckpointFormat {
+
+	/**
+	 * Write a single snapshot to the given stream.
+	 * The stream is neither flushed nor closed.
+	 * @param snapshot
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(WeightSnapshot snapshot, OutputStream out) throws IOException;
+}
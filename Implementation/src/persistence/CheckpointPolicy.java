@@ -0,0 +1,57 @@
+package persistence;
+
+/**
+ * This class decides at which training iterations
+ * a checkpoint should be taken.
+ *
+ * A checkpoint is due every given number of iterations,
+ * when the given time has passed since the last checkpoint,
+ * or both, whichever comes first.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class CheckpointPolicy {
+
+	private final long iterationInterval;
+	private final long intervalNanos;
+
+	/**
+	 * Time of the last checkpoint
+	 */
+	private long lastCheckpointNanos;
+
+	/**
+	 * @param iterationInterval take a checkpoint every this many iterations (0 to disable)
+	 * @param intervalMillis take a checkpoint every this many milliseconds (0 to disable)
+	 */
+	public CheckpointPolicy(long iterationInterval, long intervalMillis) {
+		this.iterationInterval = iterationInterval;
+		this.intervalNanos = intervalMillis * 1000000L;
+		this.lastCheckpointNanos = System.nanoTime();
+	}
+
+	public static CheckpointPolicy everyIterations(long iterations) {
+		return new CheckpointPolicy(iterations, 0);
+	}
+
+	public static CheckpointPolicy everyMillis(long millis) {
+		return new CheckpointPolicy(0, millis);
+	}
+
+	/**
+	 * Check whether a checkpoint should be taken after
+	 * the given iteration.
+	 * @param iteration
+	 * @return
+	 */
+	public boolean isDue(long iteration) {
+
+		boolean due = iterationInterval > 0 && (iteration + 1) % iterationInterval == 0;
+		if(!due && intervalNanos > 0)
+			due = System.nanoTime() - lastCheckpointNanos >= intervalNanos;
+
+		if(due)
+			lastCheckpointNanos = System.nanoTime();
+		return due;
+	}
+}
@@ -0,0 +1,246 @@
+package persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class writes checkpoints of a neural network in the
+ * background while it is being trained.
+ *
+ * The training loop asks the writer whether a checkpoint is
+ * due, and if so hands over a copy of the weights. Snapshots
+ * are queued in a bounded queue and written by a single
+ * background thread which keeps the checkpoint file open, so
+ * the training loop never waits for the disk. If the queue is
+ * full the snapshot is dropped and counted instead, unless the
+ * writer was asked to block, in which case the training loop
+ * waits for room so that no checkpoint is lost.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class CheckpointWriter implements Closeable {
+
+	/**
+	 * Marks the end of the queue
+	 */
+	private static final WeightSnapshot END_OF_QUEUE =
+		WeightSnapshot.copyOf(-1, new int[0], new float[0][], new float[0][]);
+
+	private final CheckpointFormat format;
+	private final CheckpointPolicy policy;
+	private final BlockingQueue<WeightSnapshot> queue;
+	private final OutputStream out;
+	private final Thread thread;
+	private final boolean blockWhenFull;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+	private volatile IOException failure;
+	private boolean closed;
+
+	/**
+	 * Creates a writer which appends checkpoints to the given file
+	 * @param outputFileName
+	 * @param format
+	 * @param policy
+	 * @param queueCapacity maximum number of snapshots waiting to be written
+	 * @throws IOException
+	 */
+	public CheckpointWriter(String outputFileName, CheckpointFormat format,
+			CheckpointPolicy policy, int queueCapacity) throws IOException {
+		this(outputFileName, format, policy, queueCapacity, false);
+	}
+
+	/**
+	 * Creates a writer which appends checkpoints to the given file
+	 * @param outputFileName
+	 * @param format
+	 * @param policy
+	 * @param queueCapacity maximum number of snapshots waiting to be written
+	 * @param blockWhenFull wait for room instead of dropping snapshots
+	 * @throws IOException
+	 */
+	public CheckpointWriter(String outputFileName, CheckpointFormat format,
+			CheckpointPolicy policy, int queueCapacity, boolean blockWhenFull) throws IOException {
+		this(new FileOutputStream(outputFileName, true), format, policy, queueCapacity, blockWhenFull);
+	}
+
+	/**
+	 * Creates a writer which writes checkpoints to the given stream.
+	 * The stream is closed when the writer is closed.
+	 * @param out
+	 * @param format
+	 * @param policy
+	 * @param queueCapacity maximum number of snapshots waiting to be written
+	 */
+	public CheckpointWriter(OutputStream out, CheckpointFormat format,
+			CheckpointPolicy policy, int queueCapacity) {
+		this(out, format, policy, queueCapacity, false);
+	}
+
+	/**
+	 * Creates a writer which writes checkpoints to the given stream.
+	 * The stream is closed when the writer is closed.
+	 * @param out
+	 * @param format
+	 * @param policy
+	 * @param queueCapacity maximum number of snapshots waiting to be written
+	 * @param blockWhenFull wait for room instead of dropping snapshots
+	 */
+	public CheckpointWriter(OutputStream out, CheckpointFormat format,
+			CheckpointPolicy policy, int queueCapacity, boolean blockWhenFull) {
+
+		this.blockWhenFull = blockWhenFull;
+		this.out = new BufferedOutputStream(out, 1 << 16);
+		this.format = format;
+		this.policy = policy;
+		this.queue = new ArrayBlockingQueue<WeightSnapshot>(queueCapacity);
+
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeQueuedSnapshots();
+			}
+		}, "checkpoint-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Check whether a checkpoint should be taken after
+	 * the given iteration. This is cheap and can be
+	 * called after every iteration.
+	 * @param iteration
+	 * @return
+	 */
+	public boolean isDue(long iteration) {
+		return policy.isDue(iteration);
+	}
+
+	/**
+	 * Queue a snapshot to be written. This only blocks
+	 * when the writer was asked to block when full.
+	 * @param snapshot
+	 * @return false if the snapshot was dropped since the queue is full,
+	 * or since writing has failed
+	 */
+	public boolean submit(WeightSnapshot snapshot) {
+
+		if(closed)
+			throw new RuntimeException("The checkpoint writer is closed");
+
+		boolean queued;
+		if(blockWhenFull) {
+			try {
+				queued = enqueue(snapshot);
+			}
+			catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				queued = false;
+			}
+		}
+		else {
+			queued = queue.offer(snapshot);
+		}
+
+		if(!queued)
+			droppedCount.incrementAndGet();
+		return queued;
+	}
+
+	/**
+	 * Returns the number of snapshots dropped since the
+	 * queue was full, or since writing has failed
+	 * @return
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * Write the remaining snapshots and close the file
+	 * @throws IOException if writing failed, or if a writer asked
+	 * to block when full still could not write every snapshot
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if(closed)
+			return;
+		closed = true;
+
+		try {
+			if(enqueue(END_OF_QUEUE))
+				thread.join();
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		out.close();
+		if(failure != null)
+			throw failure;
+		if(blockWhenFull && droppedCount.get() > 0)
+			throw new IOException(droppedCount.get() + " checkpoints were not written");
+	}
+
+	/**
+	 * Wait for room in the queue for as long as the
+	 * background thread is there to make room
+	 * @return false if the background thread has stopped
+	 */
+	private boolean enqueue(WeightSnapshot snapshot) throws InterruptedException {
+		while(!queue.offer(snapshot, 100, TimeUnit.MILLISECONDS)) {
+			if(!thread.isAlive())
+				return false;
+		}
+		return true;
+	}
+
+	private void writeQueuedSnapshots() {
+
+		try {
+			while(true) {
+				WeightSnapshot snapshot = queue.take();
+				if(snapshot == END_OF_QUEUE)
+					break;
+
+				format.write(snapshot, out);
+
+				// flush only once the queue has been drained
+				if(queue.isEmpty())
+					out.flush();
+			}
+			out.flush();
+		}
+		catch(IOException ex) {
+			failure = ex;
+			// keep draining so that close does not wait forever
+			drainUntilEnd();
+		}
+		catch(RuntimeException ex) {
+			failure = new IOException("Writing a checkpoint failed", ex);
+			drainUntilEnd();
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drainUntilEnd() {
+		try {
+			while(queue.take() != END_OF_QUEUE) {
+				droppedCount.incrementAndGet();
+			}
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
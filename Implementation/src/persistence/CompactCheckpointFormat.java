@@ -0,0 +1,236 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This is the compact binary checkpoint format.
+ * Each snapshot is written as
+ * <pre>
+ * int   magic number
+ * long  iteration
+ * int   layer count
+ * int[] layer sizes
+ * float[] weights (row-major) and biases of each layer
+ * </pre>
+ * using big-endian byte order. A checkpoint file holds
+ * one snapshot after another.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class CompactCheckpointFormat implements CheckpointFormat {
+
+	public static final int MAGIC = 0x414E4E43; // "ANNC"
+
+	private static final int MAX_LAYER_COUNT = 1 << 16;
+
+	private static final int READ_BLOCK_SIZE = 1 << 16;
+
+	/**
+	 * Largest array the JVM reliably allocates
+	 */
+	private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	@Override
+	public void write(WeightSnapshot snapshot, OutputStream out) throws IOException {
+
+		// a data stream has no buffer of its own, so it is neither
+		// flushed nor closed; the caller decides when to flush
+		DataOutputStream data = new DataOutputStream(out);
+
+		int layerCount = snapshot.getLayerCount();
+		data.writeInt(MAGIC);
+		data.writeLong(snapshot.getIteration());
+		data.writeInt(layerCount);
+		for(int k = 0; k < layerCount; k++) {
+			data.writeInt(snapshot.getLayerSize(k));
+		}
+		for(int k = 1; k < layerCount; k++) {
+			float[] weights = snapshot.getWeights(k);
+			for(int i = 0; i < weights.length; i++) {
+				data.writeFloat(weights[i]);
+			}
+			float[] biases = snapshot.getBiases(k);
+			for(int j = 0; j < biases.length; j++) {
+				data.writeFloat(biases[j]);
+			}
+		}
+	}
+
+	/**
+	 * Read the next snapshot from the given stream
+	 * @param in
+	 * @return the snapshot, or null at the end of the stream
+	 * @throws IOException
+	 */
+	public static WeightSnapshot read(DataInputStream in) throws IOException {
+		return read(in, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Read the next snapshot, which has to fit in the given
+	 * number of bytes left in the stream
+	 * @throws EOFException if the snapshot is cut short
+	 */
+	private static WeightSnapshot read(DataInputStream in, long available) throws IOException {
+
+		int magic;
+		try {
+			magic = in.readInt();
+		}
+		catch(EOFException e) {
+			return null;
+		}
+		if(magic != MAGIC)
+			throw new IOException("Not a compact checkpoint");
+
+		long iteration = in.readLong();
+		int layerCount = checkLayerCount(in.readInt());
+		if(16L + 4L * layerCount > available)
+			throw new EOFException("The last checkpoint is cut short");
+
+		int[] layerSizes = new int[layerCount];
+		for(int k = 0; k < layerCount; k++) {
+			layerSizes[k] = in.readInt();
+		}
+		if(getSize(layerSizes) > available)
+			throw new EOFException("The last checkpoint is cut short");
+
+		// the floats are read in blocks rather than one by one
+		byte[] bytes = new byte[READ_BLOCK_SIZE];
+		float[][] weights = new float[layerCount][];
+		float[][] biases = new float[layerCount][];
+		for(int k = 1; k < layerCount; k++) {
+			weights[k] = new float[layerSizes[k] * layerSizes[k-1]];
+			readFloats(in, bytes, weights[k]);
+			biases[k] = new float[layerSizes[k]];
+			readFloats(in, bytes, biases[k]);
+		}
+		return new WeightSnapshot(iteration, layerSizes, weights, biases);
+	}
+
+	private static void readFloats(DataInputStream in, byte[] bytes, float[] values) throws IOException {
+		for(int offset = 0; offset < values.length; ) {
+			int count = Math.min(bytes.length / 4, values.length - offset);
+			in.readFully(bytes, 0, 4 * count);
+			ByteBuffer.wrap(bytes, 0, 4 * count).asFloatBuffer().get(values, offset, count);
+			offset += count;
+		}
+	}
+
+	/**
+	 * Read the last complete snapshot of the given checkpoint
+	 * file. A snapshot cut short at the end of the file, e.g.
+	 * by a crash while it was written, is skipped.
+	 *
+	 * Only the headers of the earlier snapshots are read, to
+	 * find where each of them ends; only the last one is decoded.
+	 * @param file
+	 * @return
+	 * @throws IOException if the file holds no complete snapshot
+	 */
+	public static WeightSnapshot readLatest(Path file) throws IOException {
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long fileSize = channel.size();
+			long position = 0;
+			long latest = -1;
+			while(true) {
+				long size;
+				try {
+					size = readSize(channel, position, fileSize);
+				}
+				catch(EOFException e) {
+					// only the last snapshot can be cut short
+					break;
+				}
+				if(size < 0)
+					break;
+				latest = position;
+				position += size;
+			}
+			if(latest < 0)
+				throw new IOException(file + " holds no complete checkpoint");
+
+			channel.position(latest);
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(Channels.newInputStream(channel), READ_BLOCK_SIZE));
+			return read(in, fileSize - latest);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Read the header of the snapshot at the given position
+	 * @return the size of the snapshot in bytes, or -1 at the end of the file
+	 * @throws EOFException if the snapshot is cut short
+	 */
+	private static long readSize(FileChannel channel, long position, long fileSize) throws IOException {
+
+		if(fileSize - position < 16)
+			return -1;
+		ByteBuffer header = readFully(channel, position, 16);
+		if(header.getInt(0) != MAGIC)
+			throw new IOException("Not a compact checkpoint");
+		int layerCount = checkLayerCount(header.getInt(12));
+		if(16L + 4L * layerCount > fileSize - position)
+			throw new EOFException("The last checkpoint is cut short");
+
+		ByteBuffer sizes = readFully(channel, position + 16, 4 * layerCount);
+		int[] layerSizes = new int[layerCount];
+		for(int k = 0; k < layerCount; k++) {
+			layerSizes[k] = sizes.getInt(4 * k);
+		}
+		long size = getSize(layerSizes);
+		if(size > fileSize - position)
+			throw new EOFException("The last checkpoint is cut short");
+		return size;
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException("The last checkpoint is cut short");
+		}
+		return buffer;
+	}
+
+	private static int checkLayerCount(int layerCount) throws IOException {
+		if(layerCount < 2 || layerCount > MAX_LAYER_COUNT)
+			throw new IOException("Invalid layer count " + layerCount);
+		return layerCount;
+	}
+
+	/**
+	 * Size in bytes of a snapshot with the given layer sizes
+	 * @throws IOException if the layer sizes are not valid
+	 */
+	private static long getSize(int[] layerSizes) throws IOException {
+		int layerCount = layerSizes.length;
+		for(int k = 0; k < layerCount; k++) {
+			if(layerSizes[k] < 1)
+				throw new IOException("Invalid size " + layerSizes[k] + " of layer " + k);
+		}
+		long size = 16L + 4L * layerCount;
+		for(int k = 1; k < layerCount; k++) {
+			long weightCount = (long) layerSizes[k] * layerSizes[k-1];
+			if(weightCount > MAX_ARRAY_LENGTH)
+				throw new IOException("Layer " + k + " has too many weights");
+			size += 4L * (weightCount + layerSizes[k]);
+		}
+		return size;
+	}
+}
@@ -0,0 +1,62 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This is the human readable checkpoint format. It writes
+ * the same text the neural network has always dumped after
+ * each iteration, i.e. the input weights and the bias of each
+ * perceptron in each layer.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class TextCheckpointFormat implements CheckpointFormat {
+
+	@Override
+	public void write(WeightSnapshot snapshot, OutputStream out) throws IOException {
+		out.write(format(snapshot).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Build the text for the given snapshot
+	 * @param snapshot
+	 * @return
+	 */
+	public String format(WeightSnapshot snapshot) {
+
+		int layerCount = snapshot.getLayerCount();
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("\r\n\r\n============================\r\n");
+		builder.append(snapshot.getLayerSize(0)).append(" inputs, ");
+		builder.append(snapshot.getLayerSize(layerCount - 1)).append(" outputs, ");
+		builder.append(layerCount - 2).append(" hidden layers \r\n");
+		builder.append("Iteration ").append(snapshot.getIteration()).append("\r\n\r\n");
+
+		for(int i = 1; i < layerCount; i++) {
+
+			int currLayerSize = snapshot.getLayerSize(i);
+			int inputSize = snapshot.getLayerSize(i-1);
+			float[] weights = snapshot.getWeights(i);
+			float[] biases = snapshot.getBiases(i);
+
+			builder.append("Layer ").append(i).append(" with ").append(currLayerSize).append(" perceptrons\r\n\r\n");
+
+			for(int j = 0; j < currLayerSize; j++) {
+				builder.append("Perceptron ").append(j).append(" with ").append(inputSize).append(" inputs. \r\n");
+				builder.append("Current input weights are : ");
+				for(int k = 0; k < inputSize; k++) {
+					builder.append(weights[j * inputSize + k]).append(' ');
+				}
+				builder.append("\r\n");
+				builder.append("Current bias is : ").append(biases[j]).append("\r\n");
+			}
+
+			builder.append("\r\n\r\n");
+		}
+
+		return builder.toString();
+	}
+}
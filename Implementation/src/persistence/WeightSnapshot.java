@@ -0,0 +1,78 @@
+package persistence;
+
+/**
+ * This is a copy of the weights and biases of a neural network
+ * taken at a given training iteration.
+ *
+ * The weights of each layer are kept in the same row-major
+ * layout used by the dense network (weights[0] is not used).
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class WeightSnapshot {
+
+	private final long iteration;
+	private final int[] layerSizes;
+	private final float[][] weights;
+	private final float[][] biases;
+
+	WeightSnapshot(long iteration, int[] layerSizes, float[][] weights, float[][] biases) {
+		this.iteration = iteration;
+		this.layerSizes = layerSizes;
+		this.weights = weights;
+		this.biases = biases;
+	}
+
+	/**
+	 * Take a copy of the given weights and biases
+	 * @param iteration
+	 * @param layerSizes sizes of each layer starting from the input layer
+	 * @param weights row-major weights of each layer
+	 * @param biases biases of each layer
+	 * @return
+	 */
+	public static WeightSnapshot copyOf(long iteration, int[] layerSizes, float[][] weights, float[][] biases) {
+
+		float[][] weightsCopy = new float[layerSizes.length][];
+		float[][] biasesCopy = new float[layerSizes.length][];
+		for(int k = 1; k < layerSizes.length; k++) {
+			if(weights[k].length != layerSizes[k] * layerSizes[k-1] || biases[k].length != layerSizes[k])
+				throw new RuntimeException("Weights of layer " + k + " do not match the layer sizes");
+			weightsCopy[k] = weights[k].clone();
+			biasesCopy[k] = biases[k].clone();
+		}
+		return new WeightSnapshot(iteration, layerSizes.clone(), weightsCopy, biasesCopy);
+	}
+
+	public long getIteration() {
+		return this.iteration;
+	}
+
+	public int getLayerCount() {
+		return this.layerSizes.length;
+	}
+
+	public int getLayerSize(int layer) {
+		return this.layerSizes[layer];
+	}
+
+	/**
+	 * Returns the row-major weights of the given layer.
+	 * The returned array must not be modified.
+	 * @param layer
+	 * @return
+	 */
+	public float[] getWeights(int layer) {
+		return this.weights[layer];
+	}
+
+	/**
+	 * Returns the biases of the given layer.
+	 * The returned array must not be modified.
+	 * @param layer
+	 * @return
+	 */
+	public float[] getBiases(int layer) {
+		return this.biases[layer];
+	}
+}
@@ -0,0 +1,263 @@
+package serving;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import inference.InferenceModel;
+import inference.ModelFile;
+
+/**
+ * This is a plain socket inference service which only listens
+ * on the loopback address.
+ *
+ * Each line sent by a client holds the comma separated inputs
+ * of one sample and is answered by a line holding the comma
+ * separated outputs, or by a line starting with "ERROR". The
+ * lines of all connections go through one MicroBatcher, so
+ * concurrent clients share batches. When the batcher sheds a
+ * request the answer is "ERROR overloaded", and connections
+ * beyond the maximum are answered "ERROR busy" and closed.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class InferenceServer implements Closeable {
+
+	private final MicroBatcher batcher;
+	private final ServerSocket serverSocket;
+	private final ThreadPoolExecutor connections;
+	private Thread acceptor;
+
+	/**
+	 * Sockets of the clients being served, closed by close()
+	 * since a thread reading from a socket is not woken up
+	 * by being interrupted
+	 */
+	private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param batcher
+	 * @param port port to listen on, or 0 for any free port
+	 * @param maxConnections maximum number of clients served at once
+	 * @throws IOException
+	 */
+	public InferenceServer(MicroBatcher batcher, int port, int maxConnections) throws IOException {
+
+		this.batcher = batcher;
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.connections = new ThreadPoolExecutor(maxConnections, maxConnections, 
+				60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+		this.connections.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Start accepting clients
+	 */
+	public void start() {
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptClients();
+			}
+		}, "inference-server");
+		this.acceptor.start();
+	}
+
+	private void acceptClients() {
+		while(!serverSocket.isClosed()) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch(IOException e) {
+				// closed
+				return;
+			}
+			openSockets.add(socket);
+			if(serverSocket.isClosed()) {
+				// close() may already have closed the open sockets
+				closeSocket(socket);
+				return;
+			}
+			try {
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			}
+			catch(RejectedExecutionException e) {
+				refuse(socket);
+			}
+		}
+	}
+
+	private void refuse(Socket socket) {
+		try {
+			socket.getOutputStream().write("ERROR busy\n".getBytes(StandardCharsets.US_ASCII));
+		}
+		catch(IOException e) {
+			// the client is gone anyway
+		}
+		finally {
+			closeSocket(socket);
+		}
+	}
+
+	private void serve(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+			StringBuilder answer = new StringBuilder();
+
+			String line;
+			while((line = reader.readLine()) != null) {
+				answer.setLength(0);
+				answer(line, answer);
+				answer.append('\n');
+				writer.write(answer.toString());
+				writer.flush();
+			}
+		}
+		catch(SocketException e) {
+			// the client or the server closed the connection
+		}
+		catch(IOException e) {
+			// the client is gone
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			closeSocket(socket);
+		}
+	}
+
+	private void answer(String line, StringBuilder answer) throws InterruptedException {
+
+		float[] inputs;
+		try {
+			inputs = parse(line);
+		}
+		catch(RuntimeException e) {
+			answer.append("ERROR ").append(e.getMessage());
+			return;
+		}
+
+		float[] outputs;
+		try {
+			outputs = batcher.predict(inputs);
+		}
+		catch(RejectedExecutionException e) {
+			answer.append("ERROR overloaded");
+			return;
+		}
+		catch(RuntimeException e) {
+			answer.append("ERROR ").append(e.getMessage());
+			return;
+		}
+
+		for(int j = 0; j < outputs.length; j++) {
+			if(j > 0)
+				answer.append(',');
+			answer.append(outputs[j]);
+		}
+	}
+
+	private float[] parse(String line) {
+		String[] fields = line.split(",");
+		if(fields.length != batcher.getInputSize())
+			throw new RuntimeException("expected " + batcher.getInputSize() + " inputs but got " + fields.length);
+
+		float[] inputs = new float[fields.length];
+		for(int i = 0; i < fields.length; i++) {
+			try {
+				inputs[i] = Float.parseFloat(fields[i].trim());
+			}
+			catch(NumberFormatException e) {
+				throw new RuntimeException("invalid input " + fields[i].trim());
+			}
+		}
+		return inputs;
+	}
+
+	private void closeSocket(Socket socket) {
+		openSockets.remove(socket);
+		try {
+			socket.close();
+		}
+		catch(IOException e) {
+			// nothing more to do
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stop accepting clients and close the open connections.
+	 * The batcher is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		connections.shutdownNow();
+		for(Socket socket : openSockets) {
+			closeSocket(socket);
+		}
+		if(acceptor != null) {
+			try {
+				acceptor.join();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Serve a model file on localhost;
+	 * <pre>
+	 * InferenceServer model-file [port [max-batch-size [max-wait-micros [queue-capacity]]]]
+	 * </pre>
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if(args.length < 1) {
+			System.err.println("Usage: InferenceServer model-file [port [max-batch-size [max-wait-micros [queue-capacity]]]]");
+			System.exit(1);
+		}
+
+		InferenceModel model = ModelFile.load(Paths.get(args[0]));
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+		int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		long maxWaitMicros = args.length > 3 ? Long.parseLong(args[3]) : 500;
+		int queueCapacity = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+
+		MicroBatcher batcher = new MicroBatcher(model, maxBatchSize, maxWaitMicros, queueCapacity);
+		InferenceServer server = new InferenceServer(batcher, port, 256);
+		server.start();
+		System.out.println("Serving " + args[0] + " on localhost:" + server.getPort());
+	}
+}
@@ -0,0 +1,285 @@
+package serving;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import inference.BatchPredictor;
+import metrics.LatencyHistogram;
+
+/**
+ * This class coalesces single sample requests from many
+ * threads into batches which are predicted in one go.
+ *
+ * Requests wait in a bounded queue. A single worker thread
+ * takes the oldest request and then keeps collecting requests
+ * until the batch is full or the oldest request has waited
+ * for the maximum wait time, so no request is delayed by more
+ * than that when the service is idle. When the queue is full,
+ * new requests are rejected straight away (load shedding)
+ * rather than queueing up behind work that cannot finish in
+ * time. Requests cancelled by their callers are skipped.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class MicroBatcher implements Closeable {
+
+	private final BatchPredictor predictor;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final BlockingQueue<Request> queue;
+
+	/**
+	 * Inputs and outputs of the current batch, sample after sample
+	 */
+	private final float[] batchInputs;
+	private final float[] batchOutputs;
+	private final Request[] batch;
+
+	private final Thread worker;
+	private volatile boolean closed;
+
+	private final LongAdder served = new LongAdder();
+	private final LongAdder shed = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * @param predictor
+	 * @param maxBatchSize maximum number of samples predicted together
+	 * @param maxWaitMicros maximum time the oldest request waits for others
+	 * @param queueCapacity maximum number of waiting requests
+	 */
+	public MicroBatcher(BatchPredictor predictor, int maxBatchSize, long maxWaitMicros, int queueCapacity) {
+
+		if(maxBatchSize < 1 || maxWaitMicros < 0 || queueCapacity < 1)
+			throw new RuntimeException("Invalid batch size " + maxBatchSize + ", wait time " 
+					+ maxWaitMicros + " or queue capacity " + queueCapacity);
+
+		this.predictor = predictor;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+		this.queue = new ArrayBlockingQueue<Request>(queueCapacity);
+		this.batchInputs = new float[maxBatchSize * predictor.getInputSize()];
+		this.batchOutputs = new float[maxBatchSize * predictor.getOutputSize()];
+		this.batch = new Request[maxBatchSize];
+
+		this.worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processBatches();
+			}
+		}, "micro-batcher");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Queue the given inputs for prediction. The returned future
+	 * fails with a RejectedExecutionException when the queue is full.
+	 * @param inputs
+	 * @return the future outputs
+	 */
+	public CompletableFuture<float[]> submit(float[] inputs) {
+
+		if(inputs.length != predictor.getInputSize())
+			throw new RuntimeException("Expected " + predictor.getInputSize() + " inputs but got " + inputs.length);
+
+		Request request = new Request(inputs);
+		if(closed) {
+			request.completeExceptionally(new RejectedExecutionException("The batcher is closed"));
+		}
+		else if(!queue.offer(request)) {
+			shed.increment();
+			request.completeExceptionally(new RejectedExecutionException("Too many requests waiting"));
+		}
+		else if(closed && queue.remove(request)) {
+			// closed while offering; nobody else will see this request
+			request.completeExceptionally(new RejectedExecutionException("The batcher is closed"));
+		}
+		return request;
+	}
+
+	/**
+	 * Predict the outputs for the given inputs, waiting
+	 * for the batch they are put in
+	 * @param inputs
+	 * @return
+	 * @throws RejectedExecutionException when the request was shed
+	 * @throws InterruptedException
+	 */
+	public float[] predict(float[] inputs) throws InterruptedException {
+		try {
+			return submit(inputs).get();
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void processBatches() {
+		try {
+			while(!closed) {
+				int count = collectBatch();
+				if(count > 0)
+					predictBatch(count);
+			}
+		}
+		catch(InterruptedException e) {
+			// closed
+		}
+		finally {
+			// requests collected into an unfinished batch
+			for(int b = 0; b < batch.length; b++) {
+				if(batch[b] != null) {
+					batch[b].completeExceptionally(new RejectedExecutionException("The batcher is closed"));
+					batch[b] = null;
+				}
+			}
+			rejectWaiting();
+		}
+	}
+
+	private void rejectWaiting() {
+		Request request;
+		while((request = queue.poll()) != null) {
+			request.completeExceptionally(new RejectedExecutionException("The batcher is closed"));
+		}
+	}
+
+	/**
+	 * Wait for the oldest request and collect more requests
+	 * until the batch is full or its wait time is over
+	 * @return number of requests in the batch
+	 */
+	private int collectBatch() throws InterruptedException {
+
+		Request first = queue.take();
+		long deadline = first.submitted + maxWaitNanos;
+		int count = 0;
+		Request request = first;
+		while(true) {
+			if(!request.isDone())
+				batch[count++] = request;
+			if(count == maxBatchSize)
+				break;
+
+			request = queue.poll();
+			if(request == null) {
+				long wait = deadline - System.nanoTime();
+				if(wait <= 0)
+					break;
+				request = queue.poll(wait, TimeUnit.NANOSECONDS);
+				if(request == null)
+					break;
+			}
+		}
+		return count;
+	}
+
+	private void predictBatch(int count) {
+
+		int inputSize = predictor.getInputSize();
+		int outputSize = predictor.getOutputSize();
+		for(int b = 0; b < count; b++) {
+			System.arraycopy(batch[b].inputs, 0, batchInputs, b * inputSize, inputSize);
+		}
+
+		try {
+			predictor.predictBatch(batchInputs, batchOutputs, count);
+		}
+		catch(RuntimeException e) {
+			for(int b = 0; b < count; b++) {
+				batch[b].completeExceptionally(e);
+				batch[b] = null;
+			}
+			return;
+		}
+
+		long now = System.nanoTime();
+		for(int b = 0; b < count; b++) {
+			Request request = batch[b];
+			batch[b] = null;
+			latency.record(now - request.submitted);
+			request.complete(Arrays.copyOfRange(batchOutputs, b * outputSize, (b + 1) * outputSize));
+		}
+		served.add(count);
+		batches.increment();
+	}
+
+	/**
+	 * Stop the worker; waiting requests are rejected
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+		try {
+			worker.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// requests offered after the last drain of the worker
+		rejectWaiting();
+	}
+
+	public int getInputSize() {
+		return predictor.getInputSize();
+	}
+
+	public int getOutputSize() {
+		return predictor.getOutputSize();
+	}
+
+	/**
+	 * Number of requests answered
+	 */
+	public long getServedCount() {
+		return served.sum();
+	}
+
+	/**
+	 * Number of requests rejected because the queue was full
+	 */
+	public long getShedCount() {
+		return shed.sum();
+	}
+
+	public double getMeanBatchSize() {
+		long count = batches.sum();
+		return count == 0 ? 0.0 : (double) served.sum() / count;
+	}
+
+	/**
+	 * Time from submitting a request to its outputs being
+	 * ready (accurate to within a factor of two)
+	 * @param percentile
+	 * @return
+	 */
+	public long getLatencyNanos(double percentile) {
+		return latency.getPercentile(percentile);
+	}
+
+	/**
+	 * A queued request, completed with its outputs
+	 */
+	private static final class Request extends CompletableFuture<float[]> {
+
+		private final float[] inputs;
+		private final long submitted;
+
+		Request(float[] inputs) {
+			this.inputs = inputs;
+			this.submitted = System.nanoTime();
+		}
+	}
+}
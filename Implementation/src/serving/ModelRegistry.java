@@ -0,0 +1,198 @@
+package serving;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import inference.BatchPredictor;
+import inference.InferenceModel;
+import inference.ModelFile;
+import neurons.NeuralNetwork;
+import persistence.CompactCheckpointFormat;
+import persistence.WeightSnapshot;
+
+/**
+ * This class holds the model currently being served and
+ * lets a new model replace it while it is in use.
+ *
+ * Models are read-only snapshots, so a model never changes
+ * once published. The current version sits behind an atomic
+ * reference; readers take it without any lock and keep using
+ * the version they took until they are done, while a new
+ * model is loaded and swapped in. Only publishing and rolling
+ * back are serialized.
+ *
+ * The last few published versions are kept so the registry
+ * can roll back to an earlier one. All versions have to take
+ * the same number of inputs and give the same number of outputs.
+ *
+ * The registry is itself a predictor which always uses the
+ * current version, so it can be served by a MicroBatcher;
+ * each batch is predicted by a single version.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class ModelRegistry implements BatchPredictor {
+
+	private final AtomicReference<ModelVersion> current = new AtomicReference<ModelVersion>();
+
+	/**
+	 * Versions kept for rolling back, oldest first
+	 * (guarded by this)
+	 */
+	private final List<ModelVersion> history = new ArrayList<ModelVersion>();
+	private final int historySize;
+	private long nextVersion = 1;
+
+	/**
+	 * @param initialModel
+	 * @param historySize number of versions kept, including the current one
+	 */
+	public ModelRegistry(InferenceModel initialModel, int historySize) {
+
+		if(historySize < 1)
+			throw new RuntimeException("History size should be positive");
+
+		this.historySize = historySize;
+		publish(initialModel, "initial model");
+	}
+
+	/**
+	 * Make the given model the current version
+	 * @param model
+	 * @param source where the model came from
+	 * @return the new version
+	 */
+	public synchronized ModelVersion publish(InferenceModel model, String source) {
+
+		ModelVersion previous = current.get();
+		if(previous != null && (model.getInputSize() != previous.getModel().getInputSize()
+				|| model.getOutputSize() != previous.getModel().getOutputSize()))
+			throw new RuntimeException("Expected a model with " + previous.getModel().getInputSize() + " inputs and "
+					+ previous.getModel().getOutputSize() + " outputs but got " + model.getInputSize() 
+					+ " and " + model.getOutputSize());
+
+		ModelVersion version = new ModelVersion(nextVersion++, model, source, System.currentTimeMillis());
+		history.add(version);
+		current.set(version);
+		trimHistory();
+		return version;
+	}
+
+	/**
+	 * Publish a snapshot of the current weights of the given network
+	 * @param network
+	 * @param source
+	 * @return the new version
+	 */
+	public ModelVersion publish(NeuralNetwork network, String source) {
+		return publish(InferenceModel.snapshot(network), source);
+	}
+
+	/**
+	 * Load a model file and publish it. The file is read before
+	 * the current version is replaced, so requests keep using
+	 * the current version while it loads.
+	 * @param modelFile
+	 * @return the new version
+	 * @throws IOException
+	 */
+	public ModelVersion load(Path modelFile) throws IOException {
+		return publish(ModelFile.load(modelFile), modelFile.toString());
+	}
+
+	/**
+	 * Load the last snapshot of a compact checkpoint file and
+	 * publish it. Checkpoints only hold weights, so the layers,
+	 * activation functions and threshold of the current version
+	 * are kept.
+	 * @param checkpointFile
+	 * @return the new version
+	 * @throws IOException
+	 */
+	public ModelVersion loadCheckpoint(Path checkpointFile) throws IOException {
+		WeightSnapshot snapshot = CompactCheckpointFormat.readLatest(checkpointFile);
+		InferenceModel model = getCurrent().getModel().withWeights(snapshot);
+		return publish(model, checkpointFile + " (iteration " + snapshot.getIteration() + ")");
+	}
+
+	/**
+	 * Go back to the version published before the current one
+	 * @return the version now current
+	 */
+	public synchronized ModelVersion rollback() {
+		int index = history.indexOf(current.get());
+		if(index <= 0)
+			throw new RuntimeException("There is no earlier version to roll back to");
+		ModelVersion version = history.get(index - 1);
+		current.set(version);
+		return version;
+	}
+
+	/**
+	 * Make the given kept version the current one again
+	 * @param versionNumber
+	 * @return the version now current
+	 */
+	public synchronized ModelVersion rollbackTo(long versionNumber) {
+		for(ModelVersion version : history) {
+			if(version.getVersion() == versionNumber) {
+				current.set(version);
+				return version;
+			}
+		}
+		throw new RuntimeException("Version " + versionNumber + " is not kept any more");
+	}
+
+	/**
+	 * Drop the oldest versions, except the current one,
+	 * until at most historySize versions are kept
+	 */
+	private void trimHistory() {
+		ModelVersion currentVersion = current.get();
+		Iterator<ModelVersion> versions = history.iterator();
+		while(history.size() > historySize && versions.hasNext()) {
+			if(versions.next() != currentVersion)
+				versions.remove();
+		}
+	}
+
+	/**
+	 * Returns the version currently served; this never blocks
+	 * @return
+	 */
+	public ModelVersion getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the kept versions, oldest first
+	 * @return
+	 */
+	public synchronized List<ModelVersion> getVersions() {
+		return new ArrayList<ModelVersion>(history);
+	}
+
+	@Override
+	public void predict(float[] inputs, float[] outputs) {
+		current.get().getModel().predict(inputs, outputs);
+	}
+
+	@Override
+	public void predictBatch(float[] inputs, float[] outputs, int count) {
+		current.get().getModel().predictBatch(inputs, outputs, count);
+	}
+
+	@Override
+	public int getInputSize() {
+		return current.get().getModel().getInputSize();
+	}
+
+	@Override
+	public int getOutputSize() {
+		return current.get().getModel().getOutputSize();
+	}
+}
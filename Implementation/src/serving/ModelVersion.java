@@ -0,0 +1,48 @@
+package serving;
+
+import inference.InferenceModel;
+
+/**
+ * A model published to a ModelRegistry together with
+ * its version number and where it came from.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class ModelVersion {
+
+	private final long version;
+	private final InferenceModel model;
+	private final String source;
+	private final long publishedMillis;
+
+	ModelVersion(long version, InferenceModel model, String source, long publishedMillis) {
+		this.version = version;
+		this.model = model;
+		this.source = source;
+		this.publishedMillis = publishedMillis;
+	}
+
+	public long getVersion() {
+		return this.version;
+	}
+
+	public InferenceModel getModel() {
+		return this.model;
+	}
+
+	/**
+	 * The file or network the model was taken from
+	 */
+	public String getSource() {
+		return this.source;
+	}
+
+	public long getPublishedMillis() {
+		return this.publishedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "version " + version + " from " + source;
+	}
+}
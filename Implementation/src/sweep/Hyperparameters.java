@@ -0,0 +1,52 @@
+package sweep;
+
+import java.util.Arrays;
+
+/**
+ * One combination of the settings a network is
+ * created and trained with during a sweep.
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class Hyperparameters {
+
+	private final float learningRate;
+	private final float threshold;
+	private final int[] hiddenLayerSizes;
+	private final int iterations;
+
+	/**
+	 * @param learningRate
+	 * @param threshold common threshold of the perceptrons
+	 * @param hiddenLayerSizes
+	 * @param iterations number of epochs to train for
+	 */
+	public Hyperparameters(float learningRate, float threshold, int[] hiddenLayerSizes, int iterations) {
+		this.learningRate = learningRate;
+		this.threshold = threshold;
+		this.hiddenLayerSizes = hiddenLayerSizes.clone();
+		this.iterations = iterations;
+	}
+
+	public float getLearningRate() {
+		return this.learningRate;
+	}
+
+	public float getThreshold() {
+		return this.threshold;
+	}
+
+	public int[] getHiddenLayerSizes() {
+		return this.hiddenLayerSizes.clone();
+	}
+
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	@Override
+	public String toString() {
+		return "learning rate : " + learningRate + ", threshold : " + threshold 
+			+ ", hidden layers : " + Arrays.toString(hiddenLayerSizes) + ", iterations : " + iterations;
+	}
+}
@@ -0,0 +1,115 @@
+package sweep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * This class describes the values to try for each setting
+ * of a sweep, and lists the combinations to train either
+ * as a full grid or as a random sample.
+ *
+ * For random search the learning rate can instead be
+ * drawn from a range on a log scale.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SearchSpace {
+
+	private float[] learningRates = new float[] {0.1f};
+	private float[] thresholds = new float[] {0.5f};
+	private int[][] hiddenLayerLayouts = new int[][] {{8}};
+	private int[] iterations = new int[] {50};
+
+	private float minLearningRate;
+	private float maxLearningRate;
+
+	public SearchSpace learningRates(float... values) {
+		this.learningRates = checkNotEmpty(values.clone(), values.length);
+		this.minLearningRate = 0.0f;
+		this.maxLearningRate = 0.0f;
+		return this;
+	}
+
+	/**
+	 * Draw learning rates log-uniformly from [min, max]
+	 * in random search; a grid uses min and max only
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public SearchSpace learningRateRange(float min, float max) {
+		if(min <= 0.0f || max < min)
+			throw new RuntimeException("Invalid learning rate range [" + min + ", " + max + "]");
+		this.learningRates = new float[] {min, max};
+		this.minLearningRate = min;
+		this.maxLearningRate = max;
+		return this;
+	}
+
+	public SearchSpace thresholds(float... values) {
+		this.thresholds = checkNotEmpty(values.clone(), values.length);
+		return this;
+	}
+
+	public SearchSpace hiddenLayerLayouts(int[]... layouts) {
+		this.hiddenLayerLayouts = checkNotEmpty(layouts.clone(), layouts.length);
+		return this;
+	}
+
+	public SearchSpace iterations(int... values) {
+		this.iterations = checkNotEmpty(values.clone(), values.length);
+		return this;
+	}
+
+	private static <T> T checkNotEmpty(T values, int length) {
+		if(length == 0)
+			throw new RuntimeException("Every setting needs at least one value");
+		return values;
+	}
+
+	/**
+	 * Returns every combination of the values
+	 * @return
+	 */
+	public List<Hyperparameters> grid() {
+		List<Hyperparameters> combinations = new ArrayList<Hyperparameters>();
+		for(int[] layout : hiddenLayerLayouts) {
+			for(int iterationCount : iterations) {
+				for(float learningRate : learningRates) {
+					for(float threshold : thresholds) {
+						combinations.add(new Hyperparameters(learningRate, threshold, layout, iterationCount));
+					}
+				}
+			}
+		}
+		return combinations;
+	}
+
+	/**
+	 * Returns the given number of combinations drawn at random
+	 * @param count
+	 * @param seed the same seed always gives the same combinations
+	 * @return
+	 */
+	public List<Hyperparameters> random(int count, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Hyperparameters> combinations = new ArrayList<Hyperparameters>(count);
+		for(int i = 0; i < count; i++) {
+			float learningRate;
+			if(maxLearningRate > 0.0f) {
+				double logMin = Math.log(minLearningRate);
+				double logMax = Math.log(maxLearningRate);
+				learningRate = (float) Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+			}
+			else {
+				learningRate = learningRates[random.nextInt(learningRates.length)];
+			}
+			combinations.add(new Hyperparameters(learningRate, 
+					thresholds[random.nextInt(thresholds.length)],
+					hiddenLayerLayouts[random.nextInt(hiddenLayerLayouts.length)],
+					iterations[random.nextInt(iterations.length)]));
+		}
+		return combinations;
+	}
+}
@@ -0,0 +1,88 @@
+package sweep;
+
+/**
+ * The outcome of training one combination of a sweep
+ * @author wimal perera (09/10008)
+ *
+ */
+public final class SweepResult {
+
+	private final Hyperparameters hyperparameters;
+	private final int epochs;
+	private final double trainingLoss;
+	private final double validationLoss;
+	private final int validationErrors;
+	private final long millis;
+	private final String failure;
+
+	SweepResult(Hyperparameters hyperparameters, int epochs, double trainingLoss,
+			double validationLoss, int validationErrors, long millis, String failure) {
+		this.hyperparameters = hyperparameters;
+		this.epochs = epochs;
+		this.trainingLoss = trainingLoss;
+		this.validationLoss = validationLoss;
+		this.validationErrors = validationErrors;
+		this.millis = millis;
+		this.failure = failure;
+	}
+
+	public Hyperparameters getHyperparameters() {
+		return this.hyperparameters;
+	}
+
+	/**
+	 * Number of epochs actually trained
+	 */
+	public int getEpochs() {
+		return this.epochs;
+	}
+
+	/**
+	 * Mean training loss of the last epoch
+	 */
+	public double getTrainingLoss() {
+		return this.trainingLoss;
+	}
+
+	/**
+	 * Mean loss of the validation samples,
+	 * or NaN without a validation set
+	 */
+	public double getValidationLoss() {
+		return this.validationLoss;
+	}
+
+	/**
+	 * Number of validation samples with a wrong output
+	 */
+	public int getValidationErrors() {
+		return this.validationErrors;
+	}
+
+	/**
+	 * The loss results are ranked by; the validation
+	 * loss if there is one, otherwise the training loss
+	 */
+	public double getRankingLoss() {
+		if(failure != null)
+			return Double.POSITIVE_INFINITY;
+		return Double.isNaN(validationLoss) ? trainingLoss : validationLoss;
+	}
+
+	public long getMillis() {
+		return this.millis;
+	}
+
+	/**
+	 * Returns why the training failed, or null if it did not
+	 */
+	public String getFailure() {
+		return this.failure;
+	}
+
+	@Override
+	public String toString() {
+		return hyperparameters + (failure != null ? ", failed : " + failure 
+				: ", training loss : " + trainingLoss + ", validation loss : " + validationLoss);
+	}
+}
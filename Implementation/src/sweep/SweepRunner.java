@@ -0,0 +1,235 @@
+package sweep;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import maths.WeightInitializer;
+import neurons.DenseNetwork;
+import neurons.Gradients;
+import neurons.NeuralNetwork;
+import neurons.SignalMode;
+import training.EpochTrainer;
+import training.SampleSource;
+
+/**
+ * This class trains one network for each combination of
+ * a sweep, running many trainings at once in one JVM.
+ *
+ * The combinations are split in halves recursively into
+ * fork/join tasks, so idle workers steal the remaining
+ * combinations from busy ones when some trainings take
+ * longer than others. Each worker trains one network at a
+ * time and keeps only its result, so memory is bounded by
+ * the number of workers; the samples are shared read-only
+ * by all trainings.
+ *
+ * Every network is created with the same seed, so two
+ * combinations only differ by their settings. A training
+ * which fails is recorded with its failure and ranked last.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SweepRunner {
+
+	private final int inputCount;
+	private final int outputCount;
+	private final SampleSource trainingSet;
+	private final ForkJoinPool pool;
+
+	private SampleSource validationSet;
+	private SignalMode signalMode = SignalMode.CONTINUOUS;
+	private WeightInitializer weightInitializer = WeightInitializer.UNIFORM;
+	private int batchSize = 1;
+	private long seed = 1;
+
+	/**
+	 * Creates a runner with one worker per processor
+	 * @param inputCount
+	 * @param outputCount
+	 * @param trainingSet
+	 */
+	public SweepRunner(int inputCount, int outputCount, SampleSource trainingSet) {
+		this(inputCount, outputCount, trainingSet, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param inputCount
+	 * @param outputCount
+	 * @param trainingSet
+	 * @param parallelism number of trainings run at once
+	 */
+	public SweepRunner(int inputCount, int outputCount, SampleSource trainingSet, int parallelism) {
+
+		if(parallelism < 1)
+			throw new RuntimeException("Parallelism should be positive");
+
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		this.trainingSet = trainingSet;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Rank the combinations by the loss of the given
+	 * held-out samples instead of the training loss
+	 * @param validationSet
+	 */
+	public void setValidationSet(SampleSource validationSet) {
+		this.validationSet = validationSet;
+	}
+
+	public void setSignalMode(SignalMode signalMode) {
+		this.signalMode = signalMode;
+	}
+
+	public void setWeightInitializer(WeightInitializer weightInitializer) {
+		this.weightInitializer = weightInitializer;
+	}
+
+	/**
+	 * Number of samples per weight update
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize) {
+		if(batchSize < 1)
+			throw new RuntimeException("Batch size should be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Seed of the initial weights and of the sample order
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Train a network for each of the given combinations
+	 * @param combinations
+	 * @return the results ranked from the lowest loss
+	 */
+	public List<SweepResult> run(List<Hyperparameters> combinations) {
+
+		SweepResult[] results = new SweepResult[combinations.size()];
+		if(results.length > 0)
+			pool.invoke(new SweepTask(combinations, results, 0, results.length));
+
+		List<SweepResult> ranked = new ArrayList<SweepResult>(Arrays.asList(results));
+		Collections.sort(ranked, new Comparator<SweepResult>() {
+			@Override
+			public int compare(SweepResult first, SweepResult second) {
+				return Double.compare(first.getRankingLoss(), second.getRankingLoss());
+			}
+		});
+		return ranked;
+	}
+
+	/**
+	 * Create and train a network with the given settings
+	 */
+	private SweepResult train(Hyperparameters hyperparameters) {
+
+		long start = System.nanoTime();
+		try {
+			NeuralNetwork network = new NeuralNetwork(inputCount, outputCount, 
+					hyperparameters.getLearningRate(), hyperparameters.getThreshold(), 
+					hyperparameters.getHiddenLayerSizes(), signalMode, weightInitializer, seed);
+			DenseNetwork denseNetwork = network.getDenseNetwork();
+
+			EpochTrainer trainer = new EpochTrainer(denseNetwork, batchSize, new Random(seed));
+			EpochTrainer.Result result = trainer.train(trainingSet, hyperparameters.getIterations());
+
+			double validationLoss = Double.NaN;
+			int validationErrors = 0;
+			if(validationSet != null) {
+				Gradients validation = trainer.evaluate(validationSet);
+				validationLoss = validation.getMeanLoss();
+				validationErrors = validation.getErrorCount();
+			}
+			return new SweepResult(hyperparameters, result.getEpochs(), result.getTrainingLoss(),
+					validationLoss, validationErrors, (System.nanoTime() - start) / 1000000, null);
+		}
+		catch(RuntimeException e) {
+			return new SweepResult(hyperparameters, 0, Double.NaN, Double.NaN, 0, 
+					(System.nanoTime() - start) / 1000000, e.toString());
+		}
+	}
+
+	/**
+	 * Stop the worker threads
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Write the ranked results as a table, one line per result
+	 * @param results
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeTable(List<SweepResult> results, Appendable out) throws IOException {
+
+		out.append(String.format("%4s  %12s  %9s  %-20s  %10s  %6s  %14s  %14s  %8s  %9s%n", 
+				"rank", "learning rate", "threshold", "hidden layers", "iterations", "epochs", 
+				"training loss", "validation loss", "errors", "time (ms)"));
+		int rank = 1;
+		for(SweepResult result : results) {
+			Hyperparameters hyperparameters = result.getHyperparameters();
+			boolean validated = !Double.isNaN(result.getValidationLoss());
+			out.append(String.format("%4d  %12.6g  %9.3f  %-20s  %10d  %6d  %14.6g  %14s  %8s  %9d", 
+					rank++, hyperparameters.getLearningRate(), hyperparameters.getThreshold(),
+					Arrays.toString(hyperparameters.getHiddenLayerSizes()), hyperparameters.getIterations(),
+					result.getEpochs(), result.getTrainingLoss(), 
+					validated ? String.format("%.6g", result.getValidationLoss()) : "-",
+					validated ? String.valueOf(result.getValidationErrors()) : "-", result.getMillis()));
+			if(result.getFailure() != null)
+				out.append("  failed : ").append(result.getFailure());
+			out.append(String.format("%n"));
+		}
+	}
+
+	/**
+	 * This task trains the combinations in [from, to)
+	 */
+	private class SweepTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Hyperparameters> combinations;
+		private final SweepResult[] results;
+		private final int from;
+		private final int to;
+
+		SweepTask(List<Hyperparameters> combinations, SweepResult[] results, int from, int to) {
+			this.combinations = combinations;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from == 1) {
+				results[from] = train(combinations.get(from));
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			SweepTask left = new SweepTask(combinations, results, from, middle);
+			SweepTask right = new SweepTask(combinations, results, middle, to);
+			left.fork();
+			right.compute();
+			left.join();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package training;
+
+/**
+ * An epoch listener is told about the loss of the
+ * network at the end of each training epoch.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface EpochListener {
+
+	/**
+	 * Called at the end of each epoch
+	 * @param epoch number of the epoch starting from 0
+	 * @param trainingLoss mean loss of the training samples
+	 * @param validationLoss mean loss of the validation samples,
+	 * or NaN if they were not evaluated in this epoch
+	 */
+	void epochCompleted(int epoch, double trainingLoss, double validationLoss);
+}
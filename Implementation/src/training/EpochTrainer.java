@@ -0,0 +1,370 @@
+package training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import neurons.BatchWorkspace;
+import neurons.DenseNetwork;
+import neurons.Gradients;
+
+/**
+ * This class trains a dense network epoch by epoch until
+ * it converges or stops improving.
+ *
+ * Each epoch visits every training sample once in a new
+ * random order. Only an array of sample indexes is shuffled,
+ * the samples themselves are never copied or moved. Samples
+ * can be kept in any form a SampleSource supports.
+ *
+ * The loss of the training samples is measured by the same
+ * forward pass used to train them. A held-out validation set
+ * can be evaluated every few epochs; its loss then decides
+ * when to stop, otherwise the training loss does. Training
+ * stops when that loss reaches the target loss, or when it
+ * has not improved for a number of evaluations (patience).
+ *
+ * The learning rate of the network can follow a schedule,
+ * which is applied before each batch or each epoch.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class EpochTrainer {
+
+	private final DenseNetwork network;
+	private final int batchSize;
+	private final Random random;
+
+	private final BatchWorkspace workspace;
+	private final Gradients gradients;
+	private final Gradients totals;
+
+	private SampleSource validationSet;
+	private int evaluationInterval = 1;
+
+	private double targetLoss = 0.0;
+	private int patience = Integer.MAX_VALUE;
+	private double minImprovement = 0.0;
+
+	private LearningRateSchedule schedule;
+	private ScheduleUnit scheduleUnit;
+	private float baseLearningRate;
+	private long scheduleStep;
+
+	private final List<EpochListener> listeners = new ArrayList<EpochListener>();
+
+	public EpochTrainer(DenseNetwork network, int batchSize) {
+		this(network, batchSize, new Random());
+	}
+
+	/**
+	 * @param network
+	 * @param batchSize number of samples per weight update
+	 * @param random used to shuffle the samples
+	 */
+	public EpochTrainer(DenseNetwork network, int batchSize, Random random) {
+
+		if(batchSize < 1)
+			throw new RuntimeException("Batch size should be positive");
+
+		this.network = network;
+		this.batchSize = batchSize;
+		this.random = random;
+		this.workspace = network.createWorkspace(batchSize);
+		this.gradients = network.createGradients();
+		this.totals = network.createGradients();
+	}
+
+	/**
+	 * Evaluate the given held-out samples every few epochs
+	 * and use their loss to decide when to stop.
+	 * @param inputs
+	 * @param desiredOutputs
+	 * @param evaluationInterval number of epochs between evaluations
+	 */
+	public void setValidationSet(float[][] inputs, float[][] desiredOutputs, int evaluationInterval) {
+		setValidationSet(SampleSources.of(inputs, desiredOutputs), evaluationInterval);
+	}
+
+	/**
+	 * Evaluate the given held-out samples every few epochs
+	 * and use their loss to decide when to stop.
+	 * @param samples
+	 * @param evaluationInterval number of epochs between evaluations
+	 */
+	public void setValidationSet(SampleSource samples, int evaluationInterval) {
+
+		if(evaluationInterval < 1)
+			throw new RuntimeException("Invalid validation set");
+
+		this.validationSet = samples;
+		this.evaluationInterval = evaluationInterval;
+	}
+
+	/**
+	 * Stop as soon as the mean loss is at or below the given value
+	 * @param targetLoss
+	 */
+	public void setTargetLoss(double targetLoss) {
+		this.targetLoss = targetLoss;
+	}
+
+	/**
+	 * Stop when the best mean loss has not improved by more than
+	 * minImprovement for the given number of evaluations in a row
+	 * @param patience
+	 * @param minImprovement
+	 */
+	public void setEarlyStopping(int patience, double minImprovement) {
+
+		if(patience < 1)
+			throw new RuntimeException("Patience should be positive");
+
+		this.patience = patience;
+		this.minImprovement = minImprovement;
+	}
+
+	/**
+	 * Change the learning rate of the network with the given
+	 * schedule, starting from its current learning rate. A
+	 * schedule which is also an epoch listener is told about
+	 * the loss of each epoch.
+	 * @param schedule
+	 * @param unit whether the schedule moves on per batch or per epoch
+	 */
+	public void setLearningRateSchedule(LearningRateSchedule schedule, ScheduleUnit unit) {
+
+		if(this.schedule instanceof EpochListener)
+			listeners.remove(this.schedule);
+
+		this.schedule = schedule;
+		this.scheduleUnit = unit;
+		this.baseLearningRate = network.getLearningRate();
+		this.scheduleStep = 0;
+
+		if(schedule instanceof EpochListener)
+			listeners.add((EpochListener) schedule);
+	}
+
+	public void addEpochListener(EpochListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Train the network with the given samples for at most
+	 * the given number of epochs.
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @param maxEpochs
+	 * @return
+	 */
+	public Result train(float[][] inputVectors, float[][] desiredOutputVectors, int maxEpochs) {
+		return train(SampleSources.of(inputVectors, desiredOutputVectors), maxEpochs);
+	}
+
+	/**
+	 * Train the network with the given samples for at most
+	 * the given number of epochs.
+	 * @param samples
+	 * @param maxEpochs
+	 * @return
+	 */
+	public Result train(SampleSource samples, int maxEpochs) {
+
+		if(samples.getSampleCount() == 0)
+			throw new RuntimeException("There are no samples to train with");
+
+		int[] order = new int[samples.getSampleCount()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		double bestLoss = Double.POSITIVE_INFINITY;
+		int bestEpoch = -1;
+		int evaluationsWithoutImprovement = 0;
+		double trainingLoss = Double.NaN;
+		double validationLoss = Double.NaN;
+
+		int epoch = 0;
+		boolean converged = false;
+		boolean stoppedEarly = false;
+		while(epoch < maxEpochs && !converged && !stoppedEarly) {
+			shuffle(order);
+			trainingLoss = trainEpoch(samples, order);
+
+			double monitoredLoss = trainingLoss;
+			boolean evaluated = true;
+			validationLoss = Double.NaN;
+			if(validationSet != null) {
+				evaluated = (epoch + 1) % evaluationInterval == 0 || epoch + 1 == maxEpochs;
+				if(evaluated) {
+					validationLoss = evaluate(validationSet).getMeanLoss();
+					monitoredLoss = validationLoss;
+				}
+			}
+
+			for(EpochListener listener : listeners) {
+				listener.epochCompleted(epoch, trainingLoss, validationLoss);
+			}
+
+			if(evaluated) {
+				if(monitoredLoss < bestLoss - minImprovement) {
+					evaluationsWithoutImprovement = 0;
+				}
+				else {
+					evaluationsWithoutImprovement++;
+				}
+				if(monitoredLoss < bestLoss) {
+					bestLoss = monitoredLoss;
+					bestEpoch = epoch;
+				}
+				converged = monitoredLoss <= targetLoss;
+				stoppedEarly = !converged && evaluationsWithoutImprovement >= patience;
+			}
+			epoch++;
+		}
+
+		return new Result(epoch, trainingLoss, bestLoss, bestEpoch, converged, stoppedEarly);
+	}
+
+	/**
+	 * Train one epoch visiting the samples in the given order
+	 * @return the mean training loss of the epoch
+	 */
+	private double trainEpoch(SampleSource samples, int[] order) {
+
+		totals.clearLoss();
+		if(schedule != null && scheduleUnit == ScheduleUnit.EPOCH)
+			network.setLearningRate(schedule.getLearningRate(baseLearningRate, scheduleStep++));
+
+		boolean perBatch = schedule != null && scheduleUnit == ScheduleUnit.BATCH;
+		for(int first = 0; first < order.length; first += batchSize) {
+			int count = Math.min(batchSize, order.length - first);
+			if(perBatch)
+				network.setLearningRate(schedule.getLearningRate(baseLearningRate, scheduleStep++));
+			for(int b = 0; b < count; b++) {
+				samples.load(order[first + b], workspace, b);
+			}
+			gradients.clear();
+			network.forwardPass(workspace, count);
+			network.backwardPass(workspace, count, gradients);
+			network.applyGradients(gradients, count);
+			totals.addLoss(gradients);
+		}
+		return totals.getMeanLoss();
+	}
+
+	/**
+	 * Measure the loss of the network for the given samples
+	 * without training it
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @return the accumulated loss, error count and sample count
+	 */
+	public Gradients evaluate(float[][] inputVectors, float[][] desiredOutputVectors) {
+		return evaluate(SampleSources.of(inputVectors, desiredOutputVectors));
+	}
+
+	/**
+	 * Measure the loss of the network for the given samples
+	 * without training it
+	 * @param samples
+	 * @return the accumulated loss, error count and sample count
+	 */
+	public Gradients evaluate(SampleSource samples) {
+
+		Gradients result = network.createGradients();
+		int sampleCount = samples.getSampleCount();
+		for(int first = 0; first < sampleCount; first += batchSize) {
+			int count = Math.min(batchSize, sampleCount - first);
+			for(int b = 0; b < count; b++) {
+				samples.load(first + b, workspace, b);
+			}
+			network.forwardPass(workspace, count);
+			network.measureLoss(workspace, count, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Fisher-Yates shuffle of the sample indexes
+	 */
+	private void shuffle(int[] order) {
+		for(int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+	}
+
+	/**
+	 * The outcome of a training run
+	 */
+	public static class Result {
+
+		private final int epochs;
+		private final double trainingLoss;
+		private final double bestLoss;
+		private final int bestEpoch;
+		private final boolean converged;
+		private final boolean stoppedEarly;
+
+		Result(int epochs, double trainingLoss, double bestLoss, int bestEpoch,
+				boolean converged, boolean stoppedEarly) {
+			this.epochs = epochs;
+			this.trainingLoss = trainingLoss;
+			this.bestLoss = bestLoss;
+			this.bestEpoch = bestEpoch;
+			this.converged = converged;
+			this.stoppedEarly = stoppedEarly;
+		}
+
+		/**
+		 * Number of epochs trained
+		 */
+		public int getEpochs() {
+			return this.epochs;
+		}
+
+		/**
+		 * Mean training loss of the last epoch
+		 */
+		public double getTrainingLoss() {
+			return this.trainingLoss;
+		}
+
+		/**
+		 * Lowest mean loss used to decide when to stop
+		 * (validation loss if there is a validation set)
+		 */
+		public double getBestLoss() {
+			return this.bestLoss;
+		}
+
+		public int getBestEpoch() {
+			return this.bestEpoch;
+		}
+
+		/**
+		 * Whether the target loss was reached
+		 */
+		public boolean isConverged() {
+			return this.converged;
+		}
+
+		/**
+		 * Whether training stopped because the loss stopped improving
+		 */
+		public boolean isStoppedEarly() {
+			return this.stoppedEarly;
+		}
+
+		@Override
+		public String toString() {
+			return "epochs : " + epochs + ", training loss : " + trainingLoss
+				+ ", best loss : " + bestLoss + " (epoch " + bestEpoch + ")"
+				+ (converged ? ", converged" : stoppedEarly ? ", stopped early" : "");
+		}
+	}
+}
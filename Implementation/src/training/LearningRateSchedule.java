@@ -0,0 +1,20 @@
+package training;
+
+/**
+ * A learning rate schedule changes the learning rate of a
+ * network as training goes on. The trainer asks for the rate
+ * once per batch or once per epoch (see ScheduleUnit), never
+ * per sample.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface LearningRateSchedule {
+
+	/**
+	 * Returns the learning rate to use for the given step
+	 * @param baseRate the learning rate the network started with
+	 * @param step number of batches or epochs done so far
+	 * @return
+	 */
+	float getLearningRate(float baseRate, long step);
+}
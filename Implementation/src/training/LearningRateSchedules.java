@@ -0,0 +1,81 @@
+package training;
+
+/**
+ * This class creates the common learning rate schedules.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class LearningRateSchedules {
+
+	/**
+	 * Multiply the rate by gamma every stepSize steps
+	 * @param stepSize
+	 * @param gamma
+	 * @return
+	 */
+	public static LearningRateSchedule stepDecay(final long stepSize, final float gamma) {
+		if(stepSize < 1)
+			throw new RuntimeException("Step size should be positive");
+		return new LearningRateSchedule() {
+			@Override
+			public float getLearningRate(float baseRate, long step) {
+				return (float) (baseRate * Math.pow(gamma, step / stepSize));
+			}
+		};
+	}
+
+	/**
+	 * Multiply the rate by gamma every step
+	 * @param gamma
+	 * @return
+	 */
+	public static LearningRateSchedule exponential(final float gamma) {
+		return new LearningRateSchedule() {
+			@Override
+			public float getLearningRate(float baseRate, long step) {
+				return (float) (baseRate * Math.pow(gamma, step));
+			}
+		};
+	}
+
+	/**
+	 * Lower the rate from the base rate to minRate along half a
+	 * cosine wave over the given number of steps, starting again
+	 * from the base rate after each period (warm restarts)
+	 * @param period
+	 * @param minRate
+	 * @return
+	 */
+	public static LearningRateSchedule cosineAnnealing(final long period, final float minRate) {
+		if(period < 1)
+			throw new RuntimeException("Period should be positive");
+		return new LearningRateSchedule() {
+			@Override
+			public float getLearningRate(float baseRate, long step) {
+				double progress = (double) (step % period) / period;
+				return (float) (minRate + 0.5 * (baseRate - minRate) * (1.0 + Math.cos(Math.PI * progress)));
+			}
+		};
+	}
+
+	/**
+	 * Raise the rate linearly from almost zero to the base rate
+	 * over the given number of steps, and then follow the given
+	 * schedule counting steps from the end of the warmup
+	 * @param warmupSteps
+	 * @param after the schedule to follow after the warmup, or null to keep the base rate
+	 * @return
+	 */
+	public static LearningRateSchedule warmup(final long warmupSteps, final LearningRateSchedule after) {
+		return new LearningRateSchedule() {
+			@Override
+			public float getLearningRate(float baseRate, long step) {
+				if(step < warmupSteps)
+					return baseRate * (step + 1) / warmupSteps;
+				if(after == null)
+					return baseRate;
+				return after.getLearningRate(baseRate, step - warmupSteps);
+			}
+		};
+	}
+}
@@ -0,0 +1,174 @@
+package training;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import neurons.BatchWorkspace;
+import neurons.DenseNetwork;
+import neurons.Gradients;
+
+/**
+ * This class trains a dense network with mini-batches using
+ * several threads (data parallelism).
+ *
+ * Each batch is split into one contiguous chunk per worker.
+ * Every chunk has its own workspace and gradients, so the
+ * workers never write to shared state; they only read the
+ * weights of the network. The gradients of the chunks are
+ * then added together pairwise (tree reduction) while the
+ * fork/join tasks complete, and the weights are updated once
+ * by the calling thread.
+ *
+ * With a single worker the result is exactly the same as
+ * DenseNetwork.trainBatch.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class ParallelTrainer {
+
+	private final DenseNetwork network;
+	private final ForkJoinPool pool;
+	private final int workerCount;
+	private final int maxBatchSize;
+
+	/**
+	 * Scratch space of each chunk
+	 */
+	private final BatchWorkspace[] workspaces;
+	private final Gradients[] gradients;
+
+	/**
+	 * Creates a trainer using its own fork/join pool
+	 * with the given number of workers.
+	 * @param network
+	 * @param workerCount
+	 * @param maxBatchSize
+	 */
+	public ParallelTrainer(DenseNetwork network, int workerCount, int maxBatchSize) {
+		this(network, new ForkJoinPool(workerCount), workerCount, maxBatchSize);
+	}
+
+	/**
+	 * Creates a trainer which splits each batch into the given
+	 * number of chunks and runs them on the given pool.
+	 * @param network
+	 * @param pool
+	 * @param workerCount
+	 * @param maxBatchSize
+	 */
+	public ParallelTrainer(DenseNetwork network, ForkJoinPool pool, int workerCount, int maxBatchSize) {
+
+		if(workerCount < 1 || maxBatchSize < 1)
+			throw new RuntimeException("Worker count and batch size should be positive");
+
+		this.network = network;
+		this.pool = pool;
+		this.workerCount = workerCount;
+		this.maxBatchSize = maxBatchSize;
+
+		int chunkCapacity = (maxBatchSize + workerCount - 1) / workerCount;
+		this.workspaces = new BatchWorkspace[workerCount];
+		this.gradients = new Gradients[workerCount];
+		for(int i = 0; i < workerCount; i++) {
+			this.workspaces[i] = network.createWorkspace(chunkCapacity);
+			this.gradients[i] = network.createGradients();
+		}
+	}
+
+	/**
+	 * Trains the network with a mini-batch of samples.
+	 * Samples are taken from the given position onwards,
+	 * wrapping around at the end of the arrays.
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @param first index of the first sample of the batch
+	 * @param count number of samples in the batch
+	 */
+	public void trainBatch(float[][] inputVectors, float[][] desiredOutputVectors, int first, int count) {
+
+		if(count < 1 || count > maxBatchSize)
+			throw new RuntimeException(count + " is out of Range, maximum batch size is : " + maxBatchSize);
+
+		int chunks = Math.min(workerCount, count);
+		pool.invoke(new ChunkTask(inputVectors, desiredOutputVectors, first, count, chunks, 0, chunks));
+
+		// the reduced gradients of all chunks end up in the first one
+		network.applyGradients(gradients[0], count);
+	}
+
+	/**
+	 * Stop the worker threads of the pool
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public int getWorkerCount() {
+		return this.workerCount;
+	}
+
+	/**
+	 * This task calculates the gradients of the chunks in
+	 * [fromChunk, toChunk) and leaves their sum in the
+	 * gradients of fromChunk.
+	 */
+	private class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[][] inputVectors;
+		private final float[][] desiredOutputVectors;
+		private final int first;
+		private final int count;
+		private final int chunks;
+		private final int fromChunk;
+		private final int toChunk;
+
+		ChunkTask(float[][] inputVectors, float[][] desiredOutputVectors,
+				int first, int count, int chunks, int fromChunk, int toChunk) {
+			this.inputVectors = inputVectors;
+			this.desiredOutputVectors = desiredOutputVectors;
+			this.first = first;
+			this.count = count;
+			this.chunks = chunks;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(toChunk - fromChunk == 1) {
+				trainChunk(fromChunk);
+				return;
+			}
+
+			int middle = (fromChunk + toChunk) >>> 1;
+			ChunkTask left = new ChunkTask(inputVectors, desiredOutputVectors, first, count, chunks, fromChunk, middle);
+			ChunkTask right = new ChunkTask(inputVectors, desiredOutputVectors, first, count, chunks, middle, toChunk);
+			left.fork();
+			right.compute();
+			left.join();
+
+			gradients[fromChunk].add(gradients[middle]);
+		}
+
+		private void trainChunk(int chunk) {
+
+			// samples [start, end) of the batch belong to this chunk
+			int start = (int) ((long) count * chunk / chunks);
+			int end = (int) ((long) count * (chunk + 1) / chunks);
+
+			BatchWorkspace ws = workspaces[chunk];
+			for(int b = start; b < end; b++) {
+				ws.setInput(b - start, inputVectors[(first + b) % inputVectors.length]);
+				ws.setDesiredOutput(b - start, desiredOutputVectors[(first + b) % desiredOutputVectors.length]);
+			}
+
+			Gradients g = gradients[chunk];
+			g.clear();
+			network.forwardPass(ws, end - start);
+			network.backwardPass(ws, end - start, g);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package training;
+
+/**
+ * This schedule lowers the learning rate by a factor whenever
+ * the loss measured by the trainer has not improved for a
+ * number of epochs. It watches the validation loss when one
+ * is evaluated and the training loss otherwise.
+ *
+ * It is told about the loss as an epoch listener, which the
+ * EpochTrainer does by itself when the schedule is set.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class ReduceOnPlateauSchedule implements LearningRateSchedule, EpochListener {
+
+	private final float factor;
+	private final int patience;
+	private final double minImprovement;
+	private final float minRate;
+
+	private double bestLoss = Double.POSITIVE_INFINITY;
+	private int epochsWithoutImprovement;
+	private boolean validated;
+	private float scale = 1.0f;
+
+	/**
+	 * @param factor the rate is multiplied by this on each plateau
+	 * @param patience number of epochs without improvement which make a plateau
+	 * @param minImprovement smallest drop of the loss counted as an improvement
+	 * @param minRate the rate is never lowered below this
+	 */
+	public ReduceOnPlateauSchedule(float factor, int patience, double minImprovement, float minRate) {
+
+		if(factor <= 0.0f || factor >= 1.0f)
+			throw new RuntimeException("Factor should be in (0, 1) : " + factor);
+		if(patience < 1)
+			throw new RuntimeException("Patience should be positive");
+
+		this.factor = factor;
+		this.patience = patience;
+		this.minImprovement = minImprovement;
+		this.minRate = minRate;
+	}
+
+	@Override
+	public void epochCompleted(int epoch, double trainingLoss, double validationLoss) {
+
+		double loss;
+		if(!Double.isNaN(validationLoss)) {
+			validated = true;
+			loss = validationLoss;
+		}
+		else if(validated) {
+			// the validation set was not evaluated in this epoch
+			return;
+		}
+		else {
+			loss = trainingLoss;
+		}
+
+		if(loss < bestLoss - minImprovement) {
+			bestLoss = loss;
+			epochsWithoutImprovement = 0;
+		}
+		else if(++epochsWithoutImprovement >= patience) {
+			scale *= factor;
+			epochsWithoutImprovement = 0;
+		}
+	}
+
+	@Override
+	public float getLearningRate(float baseRate, long step) {
+		return Math.max(baseRate * scale, Math.min(minRate, baseRate));
+	}
+
+	/**
+	 * Returns the factor the base rate is currently multiplied by
+	 * @return
+	 */
+	public float getScale() {
+		return this.scale;
+	}
+}
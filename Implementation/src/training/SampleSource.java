@@ -0,0 +1,24 @@
+package training;
+
+import neurons.BatchWorkspace;
+
+/**
+ * A sample source gives random access to the samples of a
+ * data set, whatever form they are kept in, by loading them
+ * straight into a workspace.
+ * @author wimal perera (09/10008)
+ *
+ */
+public interface SampleSource {
+
+	int getSampleCount();
+
+	/**
+	 * Load the inputs and desired outputs of a sample
+	 * into the given position of the workspace
+	 * @param sample index of the sample in this source
+	 * @param ws
+	 * @param position position of the sample in the workspace
+	 */
+	void load(int sample, BatchWorkspace ws, int position);
+}
@@ -0,0 +1,111 @@
+package training;
+
+import data.PackedDataset;
+import data.SparseDataset;
+import neurons.BatchWorkspace;
+
+/**
+ * This class creates sample sources over the
+ * supported forms of data sets.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class SampleSources {
+
+	/**
+	 * Samples kept as one float vector each
+	 * @param inputVectors
+	 * @param desiredOutputVectors
+	 * @return
+	 */
+	public static SampleSource of(final float[][] inputVectors, final float[][] desiredOutputVectors) {
+
+		if(inputVectors.length != desiredOutputVectors.length)
+			throw new RuntimeException("There should be one desired output for each input");
+
+		return new SampleSource() {
+			@Override
+			public int getSampleCount() {
+				return inputVectors.length;
+			}
+
+			@Override
+			public void load(int sample, BatchWorkspace ws, int position) {
+				ws.setInput(position, inputVectors[sample]);
+				ws.setDesiredOutput(position, desiredOutputVectors[sample]);
+			}
+		};
+	}
+
+	/**
+	 * Binary samples packed into bits; the first layer
+	 * only reads the weights of the inputs which are set
+	 * @param dataset
+	 * @return
+	 */
+	public static SampleSource of(final PackedDataset dataset) {
+		return new SampleSource() {
+			@Override
+			public int getSampleCount() {
+				return dataset.getSampleCount();
+			}
+
+			@Override
+			public void load(int sample, BatchWorkspace ws, int position) {
+				ws.setPackedInput(position, dataset.getInputBits(), sample * dataset.getInputWords());
+				ws.setPackedDesiredOutput(position, dataset.getOutputBits(), sample * dataset.getOutputWords());
+			}
+		};
+	}
+
+	/**
+	 * Samples with sparse inputs; the first layer only
+	 * reads and changes the weights of the non-zero inputs
+	 * @param dataset
+	 * @return
+	 */
+	public static SampleSource of(final SparseDataset dataset) {
+		return new SampleSource() {
+			@Override
+			public int getSampleCount() {
+				return dataset.getSampleCount();
+			}
+
+			@Override
+			public void load(int sample, BatchWorkspace ws, int position) {
+				int start = dataset.getRowStart(sample);
+				ws.setSparseInput(position, dataset.getIndices(), dataset.getValues(),
+						start, dataset.getRowStart(sample + 1) - start);
+				ws.setDesiredOutput(position, dataset.getDesiredOutputs(), sample * dataset.getOutputSize());
+			}
+		};
+	}
+
+	/**
+	 * The samples of another source whose index modulo
+	 * shardCount equals shard, e.g. the part of a data set
+	 * one of several workers trains with
+	 * @param source
+	 * @param shard
+	 * @param shardCount
+	 * @return
+	 */
+	public static SampleSource shard(final SampleSource source, final int shard, final int shardCount) {
+
+		if(shard < 0 || shard >= shardCount)
+			throw new RuntimeException(shard + " is out of Range, shard count is : " + shardCount);
+
+		final int sampleCount = (source.getSampleCount() - shard + shardCount - 1) / shardCount;
+		return new SampleSource() {
+			@Override
+			public int getSampleCount() {
+				return sampleCount;
+			}
+
+			@Override
+			public void load(int sample, BatchWorkspace ws, int position) {
+				source.load(sample * shardCount + shard, ws, position);
+			}
+		};
+	}
+}
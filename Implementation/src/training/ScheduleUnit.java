@@ -0,0 +1,12 @@
+package training;
+
+/**
+ * This enumeration tells how often a learning
+ * rate schedule moves on by one step.
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum ScheduleUnit {
+	BATCH,
+	EPOCH
+}
@@ -0,0 +1,72 @@
+package training;
+
+import java.io.IOException;
+
+import data.BatchPrefetcher;
+import data.RecordReader;
+import data.TrainingBatch;
+import neurons.DenseNetwork;
+
+/**
+ * This class trains a dense network with records streamed
+ * from a record reader, so the training data does not need
+ * to fit in memory. Batches are read ahead on a background
+ * thread while the network is being trained.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class StreamingTrainer {
+
+	/**
+	 * Number of batch buffers passed between the reading
+	 * thread and the training thread
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 3;
+
+	private final DenseNetwork network;
+	private final int batchSize;
+	private final int bufferCount;
+
+	public StreamingTrainer(DenseNetwork network, int batchSize) {
+		this(network, batchSize, DEFAULT_BUFFER_COUNT);
+	}
+
+	public StreamingTrainer(DenseNetwork network, int batchSize, int bufferCount) {
+		this.network = network;
+		this.batchSize = batchSize;
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * Train the network with every record of the reader for the
+	 * given number of epochs. The reader is closed at the end.
+	 * @param reader
+	 * @param epochs
+	 * @return the number of records trained with
+	 * @throws IOException
+	 */
+	public long train(RecordReader reader, int epochs) throws IOException {
+
+		if(reader.getInputSize() != network.getLayerSize(0)
+				|| reader.getOutputSize() != network.getLayerSize(network.getLayerCount() - 1))
+			throw new RuntimeException("The records do not match the layer sizes of the network");
+
+		long records = 0;
+		BatchPrefetcher prefetcher = new BatchPrefetcher(reader, batchSize, bufferCount);
+		try {
+			for(int epoch = 0; epoch < epochs; epoch++) {
+				prefetcher.start();
+				TrainingBatch batch;
+				while((batch = prefetcher.next()) != null) {
+					network.trainBatch(batch.getInputs(), batch.getDesiredOutputs(), batch.getCount());
+					records += batch.getCount();
+					prefetcher.release(batch);
+				}
+			}
+		}
+		finally {
+			prefetcher.close();
+		}
+		return records;
+	}
+}
@@ -0,0 +1,95 @@
+package maths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks of the lookup table sigmoid and of the half
+ * precision conversions at the edges of their ranges.
+ * @author wimal perera (09/10008)
+ *
+ */
+public class MathUtilsTest {
+
+	private static final float RANGE = 16.0f;
+
+	@Test
+	public void tableSigmoidAroundTheEndsOfTheTable() {
+		for(float end : new float[] {-RANGE, RANGE}) {
+			float below = end;
+			float above = end;
+			for(int i = 0; i < 1000; i++) {
+				below = Math.nextDown(below);
+				above = Math.nextUp(above);
+				assertEquals(MathUtils.sigmoid(below), MathUtils.tableSigmoid(below), 1e-6f, "sigmoid of " + below);
+				assertEquals(MathUtils.sigmoid(above), MathUtils.tableSigmoid(above), 1e-6f, "sigmoid of " + above);
+			}
+			assertEquals(MathUtils.sigmoid(end), MathUtils.tableSigmoid(end), 1e-6f);
+		}
+		assertEquals(0.0f, MathUtils.tableSigmoid(Float.NEGATIVE_INFINITY), 1e-6f);
+		assertEquals(1.0f, MathUtils.tableSigmoid(Float.POSITIVE_INFINITY), 1e-6f);
+	}
+
+	@Test
+	public void tableSigmoidErrorIsBelowOneMillionth() {
+		double maxError = 0.0;
+		for(int i = -20 * 4096; i <= 20 * 4096; i++) {
+			float x = i / 4096.0f + 0.3f / 4096.0f;
+			double exact = 1.0 / (1.0 + Math.exp(-x));
+			maxError = Math.max(maxError, Math.abs(MathUtils.tableSigmoid(x) - exact));
+		}
+		assertTrue(maxError < 1e-6, "max error " + maxError);
+	}
+
+	@Test
+	public void float16KnownValues() {
+		assertEquals((short) 0x3c00, MathUtils.toFloat16(1.0f));
+		assertEquals((short) 0xc000, MathUtils.toFloat16(-2.0f));
+		assertEquals((short) 0x0000, MathUtils.toFloat16(0.0f));
+		assertEquals((short) 0x8000, MathUtils.toFloat16(-0.0f));
+		assertEquals((short) 0x7bff, MathUtils.toFloat16(65504.0f));
+		assertEquals((short) 0x0400, MathUtils.toFloat16(0x1.0p-14f));
+		assertEquals((short) 0x03ff, MathUtils.toFloat16(0x1.ff8p-15f));
+		assertEquals((short) 0x0001, MathUtils.toFloat16(0x1.0p-24f));
+	}
+
+	@Test
+	public void float16RoundsTiesToEven() {
+		// halfway between 1 and the next half, and between that one and the next
+		assertEquals((short) 0x3c00, MathUtils.toFloat16(1.0f + 0x1.0p-11f));
+		assertEquals((short) 0x3c02, MathUtils.toFloat16(1.0f + 0x1.8p-10f));
+		assertEquals((short) 0x3c01, MathUtils.toFloat16(Math.nextUp(1.0f + 0x1.0p-11f)));
+		// the same for subnormals
+		assertEquals((short) 0x0000, MathUtils.toFloat16(0x1.0p-25f));
+		assertEquals((short) 0x0001, MathUtils.toFloat16(Math.nextUp(0x1.0p-25f)));
+		assertEquals((short) 0x0002, MathUtils.toFloat16(0x1.8p-24f));
+		assertEquals((short) 0x0002, MathUtils.toFloat16(0x1.4p-23f));
+		// rounding up out of the subnormals into the normals
+		assertEquals((short) 0x0400, MathUtils.toFloat16(Math.nextDown(0x1.0p-14f)));
+	}
+
+	@Test
+	public void float16OverflowsToInfinity() {
+		assertEquals((short) 0x7bff, MathUtils.toFloat16(Math.nextDown(65520.0f)));
+		assertEquals((short) 0x7c00, MathUtils.toFloat16(65520.0f));
+		assertEquals((short) 0xfc00, MathUtils.toFloat16(-1.0e6f));
+		assertEquals((short) 0x7c00, MathUtils.toFloat16(Float.POSITIVE_INFINITY));
+		assertEquals(Float.NEGATIVE_INFINITY, MathUtils.fromFloat16((short) 0xfc00));
+		assertTrue(Float.isNaN(MathUtils.fromFloat16(MathUtils.toFloat16(Float.NaN))));
+	}
+
+	@Test
+	public void float16RoundTripsEveryHalf() {
+		for(int bits = 0; bits <= 0xffff; bits++) {
+			short half = (short) bits;
+			float value = MathUtils.fromFloat16(half);
+			if(Float.isNaN(value)) {
+				assertTrue((bits & 0x7c00) == 0x7c00 && (bits & 0x03ff) != 0);
+				continue;
+			}
+			assertEquals(half, MathUtils.toFloat16(value), "half " + Integer.toHexString(bits));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import inference.InferenceModel;
+import maths.MathUtils;
+import neurons.SignalMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures predictions of the read-only inference model.
+ * @author wimal perera (09/10008)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class InferenceBenchmark {
+
+	private static final int SAMPLE_COUNT = 256;
+
+	@Param({"XOR", "ASSIGNMENT", "WIDE"})
+	public Topology topology;
+
+	@Param({"BOOLEAN", "CONTINUOUS"})
+	public SignalMode signalMode;
+
+	private InferenceModel model;
+	private float[][] inputs;
+	private float[] outputs;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		model = InferenceModel.snapshot(topology.createNetwork(signalMode));
+		inputs = MathUtils.booleanArrayToFloatArray(
+				Topology.randomVectors(SAMPLE_COUNT, topology.getInputCount(), random));
+		outputs = new float[topology.getOutputCount()];
+	}
+
+	@Benchmark
+	public float[] predict() {
+		int i = next;
+		next = (i + 1) % SAMPLE_COUNT;
+		model.predict(inputs[i], outputs);
+		return outputs;
+	}
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import maths.Kernels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the scalar and the SIMD (Vector API) kernels
+ * used for the dot products, the delta accumulation and
+ * the weight updates.
+ * @author wimal perera (09/10008)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+	@Param({"scalar", "vector"})
+	public String kernels;
+
+	@Param({"8", "64", "1024", "4096"})
+	public int length;
+
+	private Kernels implementation;
+	private float[] x;
+	private float[] y;
+
+	@Setup
+	public void setUp() {
+		implementation = kernels.equals("vector") ? Kernels.vector() : Kernels.scalar();
+		if(implementation == null)
+			throw new RuntimeException("The jdk.incubator.vector module is not available");
+
+		Random random = new Random(42);
+		x = new float[length];
+		y = new float[length];
+		for(int i = 0; i < length; i++) {
+			x[i] = random.nextFloat() - 0.5f;
+			y[i] = random.nextFloat() - 0.5f;
+		}
+	}
+
+	@Benchmark
+	public float dot() {
+		return implementation.dot(x, 0, y, 0, length);
+	}
+
+	@Benchmark
+	public float[] axpy() {
+		implementation.axpy(1e-3f, x, 0, y, 0, length);
+		return y;
+	}
+}
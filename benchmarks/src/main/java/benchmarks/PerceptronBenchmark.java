@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import maths.ActivationFunction;
+import neurons.Perceptron;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the output calculation of a single
+ * perceptron of the object model.
+ * @author wimal perera (09/10008)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptronBenchmark {
+
+	@Param({"2", "8", "1024"})
+	public int inputSize;
+
+	private Perceptron perceptron;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		perceptron = new Perceptron(inputSize, ActivationFunction.SIGMOID, 0.5f);
+		for(int i = 0; i < inputSize; i++) {
+			perceptron.setWeight(i, random.nextFloat() * 2.0f - 1.0f);
+			perceptron.setInput(i, random.nextBoolean());
+		}
+	}
+
+	@Benchmark
+	public boolean calculateOutput() {
+		perceptron.calculateOutput();
+		return perceptron.getStoredOutput();
+	}
+}
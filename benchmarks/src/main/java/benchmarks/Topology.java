@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.Random;
+
+import neurons.NeuralNetwork;
+import neurons.SignalMode;
+
+/**
+ * The network topologies used by the benchmarks;
+ * <pre>
+ * XOR        2-2-1 network from Main.testForXOR
+ * ASSIGNMENT 6-(8x6)-7 network from Main.testForMyNetwork
+ * WIDE       1024-1024-1024-10 network with wide layers
+ * </pre>
+ * @author wimal perera (09/10008)
+ *
+ */
+public enum Topology {
+
+	XOR(2, new int[] {2}, 1),
+	ASSIGNMENT(6, new int[] {8, 8, 8, 8, 8, 8}, 7),
+	WIDE(1024, new int[] {1024, 1024}, 10);
+
+	private final int inputCount;
+	private final int[] hiddenLayerSizes;
+	private final int outputCount;
+
+	private Topology(int inputCount, int[] hiddenLayerSizes, int outputCount) {
+		this.inputCount = inputCount;
+		this.hiddenLayerSizes = hiddenLayerSizes;
+		this.outputCount = outputCount;
+	}
+
+	public NeuralNetwork createNetwork(SignalMode signalMode) {
+		return new NeuralNetwork(inputCount, outputCount, 0.1f, 0.5f, getHiddenLayerSizes(), signalMode);
+	}
+
+	public int[] getHiddenLayerSizes() {
+		return this.hiddenLayerSizes.clone();
+	}
+
+	public int getInputCount() {
+		return this.inputCount;
+	}
+
+	public int getOutputCount() {
+		return this.outputCount;
+	}
+
+	/**
+	 * Random boolean vectors of the given size
+	 * @param count
+	 * @param size
+	 * @param random
+	 * @return
+	 */
+	public static boolean[][] randomVectors(int count, int size, Random random) {
+		boolean[][] vectors = new boolean[count][size];
+		for(boolean[] vector : vectors) {
+			for(int i = 0; i < size; i++) {
+				vector[i] = random.nextBoolean();
+			}
+		}
+		return vectors;
+	}
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import maths.MathUtils;
+import neurons.DenseNetwork;
+import neurons.NeuralNetwork;
+import neurons.SignalMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures training with a single input and training
+ * a full epoch of mini-batches.
+ * @author wimal perera (09/10008)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class TrainingBenchmark {
+
+	/**
+	 * Number of samples in an epoch
+	 */
+	private static final int SAMPLE_COUNT = 256;
+
+	@Param({"XOR", "ASSIGNMENT", "WIDE"})
+	public Topology topology;
+
+	@Param({"BOOLEAN", "CONTINUOUS"})
+	public SignalMode signalMode;
+
+	@Param({"32"})
+	public int batchSize;
+
+	private ExposedNeuralNetwork network;
+	private boolean[][] inputVectors;
+	private boolean[][] desiredOutputVectors;
+	private float[][] inputs;
+	private float[][] desiredOutputs;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		network = new ExposedNeuralNetwork(topology, signalMode);
+		inputVectors = Topology.randomVectors(SAMPLE_COUNT, topology.getInputCount(), random);
+		desiredOutputVectors = Topology.randomVectors(SAMPLE_COUNT, topology.getOutputCount(), random);
+		inputs = MathUtils.booleanArrayToFloatArray(inputVectors);
+		desiredOutputs = MathUtils.booleanArrayToFloatArray(desiredOutputVectors);
+	}
+
+	@Benchmark
+	public void trainForSingleInput() {
+		int i = next;
+		next = (i + 1) % SAMPLE_COUNT;
+		network.trainForSingleInput(inputVectors[i], desiredOutputVectors[i]);
+	}
+
+	@Benchmark
+	public void trainEpoch() {
+		DenseNetwork dense = network.getDenseNetwork();
+		for(int first = 0; first < SAMPLE_COUNT; first += batchSize) {
+			dense.trainBatch(inputs, desiredOutputs, first, Math.min(batchSize, SAMPLE_COUNT - first));
+		}
+	}
+
+	/**
+	 * Makes the protected single input training visible
+	 */
+	static class ExposedNeuralNetwork extends NeuralNetwork {
+
+		ExposedNeuralNetwork(Topology topology, SignalMode signalMode) {
+			super(topology.getInputCount(), topology.getOutputCount(), 0.1f, 0.5f,
+					topology.getHiddenLayerSizes(), signalMode);
+		}
+
+		@Override
+		public void trainForSingleInput(boolean[] inputs, boolean[] desiredOutputs) {
+			super.trainForSingleInput(inputs, desiredOutputs);
+		}
+	}
+}